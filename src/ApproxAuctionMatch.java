@@ -0,0 +1,362 @@
+import java.util.ArrayList;
+
+/**
+ * A (1+approximation)-approximate offline matching for large instances,
+ * w/ a certified lower bound on the optimal cost
+ *
+ * A forward auction like AuctionMatch's, but in (real-valued) cost terms and
+ * w/ each bid found by a KdTree over the servers instead of a scan over all
+ * of them: a request values server j at distance + price[j], so its best
+ * and second best servers are the tree's two weighted nearest neighbors
+ * (the weights being the prices).  So a bid costs about O(log m), and there
+ * is never an n*m matrix, which lets it run at n = 10^4 - 10^5
+ *
+ * After each auction, any prices >= 0 give a lower bound on the optimal
+ * cost (LP duality):
+ *
+ *   sum over requests i of min_j(distance(i,j) + price[j]) - sum of prices
+ *
+ * which is worked out w/ one tree query per request.  Epsilon is divided by
+ * EPSILON_FACTOR after each auction, until the matching costs no more than
+ * (1 + approximation) times the lower bound.  The last auction's matching
+ * and the bound are both kept, so callers can report ratios against the
+ * bound instead of the (unknown) optimum
+ *
+ * The two sides don't have to be the same size: the smaller side bids (so
+ * every node on it is matched) and the tree is built over the larger one.
+ * Below, "requests" and "servers" are the bidders and the tree's points.
+ * W/ m servers and n < m requests, m - n dummy requests w/ cost 0 to every
+ * server bid as well.  They are never stored as nodes: a dummy just wants
+ * the cheapest server, found w/ a heap of the prices.  W/o them, a server
+ * left unassigned could keep a high price from an earlier auction, and the
+ * auction would be no good (nor the bound tight); w/ them every server is
+ * assigned, and the lower bound becomes
+ *
+ *   sum over requests i of min_j(distance(i,j) + price[j])
+ *     + (m - n) * min_j(price[j]) - sum of prices
+ */
+public class ApproxAuctionMatch {
+
+    //Epsilon is divided by this after each auction
+    private final double EPSILON_FACTOR = 4;
+    //Give up making epsilon smaller past this fraction of the largest cost
+    private final double MIN_EPSILON = 1e-12;
+
+    private ArrayList<Node> sNodes;
+    private ArrayList<Node> rNodes;
+
+    //Number of bidders and of objects, n <= m
+    private int n;
+    private int m;
+
+    //Are the bidders the server nodes? (only when there are more requests)
+    private boolean transposed;
+
+    private int[] rX;
+    private int[] rY;
+    private int[] sX;
+    private int[] sY;
+
+    //Server prices, the tree's weights
+    private double[] price;
+    private KdTree tree;
+
+    //Server prices again, for the dummy requests' bids (only if n < m)
+    private IndexedMinHeap priceHeap;
+
+    //Server assigned to each request and request assigned to each server, or
+    //-1.  Requests n..m-1 are the dummies
+    private int[] personObj;
+    private int[] objPerson;
+
+    //Unassigned requests waiting to bid, as a circular queue
+    private int[] queue;
+    private int queueHead;
+    private int queueCount;
+
+    //Stop once cost <= (1 + approximation) * lowerBound
+    private double approximation;
+
+    //Results of the last run()
+    private double totalCost;
+    private double lowerBound;
+    //Did the last run() reach cost <= (1 + approximation) * lowerBound?
+    private boolean certified;
+    private int numAuctions;
+    private long numBids;
+
+    public ApproxAuctionMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this(sNodes, rNodes, 0.01);
+    }
+
+    public ApproxAuctionMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes, double approximation) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	this.approximation = approximation;
+	transposed = rNodes.size() > sNodes.size();
+	ArrayList<Node> bidders = transposed ? sNodes : rNodes;
+	ArrayList<Node> objects = transposed ? rNodes : sNodes;
+	n = bidders.size();
+	m = objects.size();
+	rX = new int[n];
+	rY = new int[n];
+	sX = new int[m];
+	sY = new int[m];
+	setCoordinates(bidders, objects);
+	price = new double[m];
+	tree = new KdTree(sX, sY);
+	personObj = new int[m];
+	objPerson = new int[m];
+	queue = new int[Math.max(1, m)];
+	if(n < m) {
+	    priceHeap = new IndexedMinHeap(m);
+	}
+    }
+
+    public void setApproximation(double approximation) {
+	this.approximation = approximation;
+    }
+
+    private void setCoordinates(ArrayList<Node> bidders, ArrayList<Node> objects) {
+	for(int i = 0; i < n; i++) {
+	    rX[i] = bidders.get(i).getX();
+	    rY[i] = bidders.get(i).getY();
+	}
+	for(int j = 0; j < m; j++) {
+	    sX[j] = objects.get(j).getX();
+	    sY[j] = objects.get(j).getY();
+	}
+    }
+
+    /**
+     * Runs the Algorithm again on new nodes, the same number of sNodes and
+     * rNodes as before, reusing the tree, heap and queue
+     */
+    public ArrayList<MatchInfo> resolve(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	if(transposed) {
+	    setCoordinates(sNodes, rNodes);
+	} else {
+	    setCoordinates(rNodes, sNodes);
+	}
+	tree.rebuild();
+	return run();
+    }
+
+    /**
+     * Run the Algorithm, and return a matching w/ cost at most
+     * (1 + approximation) * getLowerBound()
+     *
+     * Unless epsilon gets down to MIN_EPSILON times the largest cost first
+     * (e.g. approximation 0, or so small that rounding error is bigger):
+     * then the last auction's matching is returned w/o that guarantee, and
+     * isCertified() is false
+     */
+    public ArrayList<MatchInfo> run() {
+	numAuctions = 0;
+	numBids = 0;
+	for(int j = 0; j < m; j++) {
+	    price[j] = 0;
+	    tree.update(j, 0, true);
+	    if(priceHeap != null) {
+		priceHeap.insertOrDecrease(j, 0);
+	    }
+	}
+	double maxCost = maxCost();
+	double epsilon = Math.max(maxCost/100, Double.MIN_NORMAL);
+	while(true) {
+	    runAuction(epsilon);
+	    numAuctions++;
+	    totalCost = 0;
+	    for(int i = 0; i < n; i++) {
+		totalCost += cost(i, personObj[i]);
+	    }
+	    lowerBound = computeLowerBound();
+	    certified = totalCost <= (1 + approximation)*lowerBound;
+	    if(certified || epsilon <= MIN_EPSILON*maxCost) {
+		break;
+	    }
+	    epsilon /= EPSILON_FACTOR;
+	}
+	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(n);
+	for(int i = 0; i < n; i++) {
+	    int j = personObj[i];
+	    if(transposed) {
+		matches.add(new MatchInfo(sNodes.get(i), rNodes.get(j), cost(i, j)));
+	    } else {
+		matches.add(new MatchInfo(sNodes.get(j), rNodes.get(i), cost(i, j)));
+	    }
+	}
+	return matches;
+    }
+
+    /**
+     * Total cost of the matching found by run()
+     */
+    public double getTotalCost() {
+	return totalCost;
+    }
+
+    /**
+     * No matching can cost less than this, see the class comment
+     */
+    public double getLowerBound() {
+	return lowerBound;
+    }
+
+    /**
+     * Is the last run()'s matching within (1 + approximation) of
+     * getLowerBound()?  Only false if run() gave up at MIN_EPSILON
+     */
+    public boolean isCertified() {
+	return certified;
+    }
+
+    public int getNumAuctions() {
+	return numAuctions;
+    }
+
+    public long getNumBids() {
+	return numBids;
+    }
+
+    /**
+     * Largest distance between a request and a server, bounded by the
+     * bounding box of all the nodes
+     */
+    private double maxCost() {
+	if(n == 0) {
+	    return 0;
+	}
+	int minX = rX[0];
+	int maxX = rX[0];
+	int minY = rY[0];
+	int maxY = rY[0];
+	for(int i = 0; i < n; i++) {
+	    minX = Math.min(minX, rX[i]);
+	    maxX = Math.max(maxX, rX[i]);
+	    minY = Math.min(minY, rY[i]);
+	    maxY = Math.max(maxY, rY[i]);
+	}
+	for(int j = 0; j < m; j++) {
+	    minX = Math.min(minX, sX[j]);
+	    maxX = Math.max(maxX, sX[j]);
+	    minY = Math.min(minY, sY[j]);
+	    maxY = Math.max(maxY, sY[j]);
+	}
+	return xyDistance(minX, maxX, minY, maxY);
+    }
+
+    /**
+     * sum of min_j(distance(i,j) + price[j]) + (m - n)*min_j(price[j]) -
+     * sum of price[j].  That is the value of the dual solution w/ prices
+     * price[j] - min_j(price[j]), which are all >= 0, so it is feasible
+     */
+    private double computeLowerBound() {
+	double bound = 0;
+	for(int i = 0; i < n; i++) {
+	    tree.nearest(rX[i], rY[i]);
+	    bound += tree.getQueryValue();
+	}
+	if(priceHeap != null) {
+	    bound += (m - n)*priceHeap.peekKey();
+	}
+	for(int j = 0; j < m; j++) {
+	    bound -= price[j];
+	}
+	return bound;
+    }
+
+    /**  -------------------------AUCTION-------------------------  */
+
+    /**
+     * One full forward auction w/ the given epsilon, starting from the
+     * current prices and no assignments
+     */
+    private void runAuction(double epsilon) {
+	queueHead = 0;
+	queueCount = 0;
+	for(int j = 0; j < m; j++) {
+	    objPerson[j] = -1;
+	}
+	for(int i = 0; i < m; i++) {
+	    personObj[i] = -1;
+	    queue[queueCount] = i;
+	    queueCount++;
+	}
+	while(queueCount > 0) {
+	    int i = queue[queueHead];
+	    queueHead = (queueHead + 1) % m;
+	    queueCount--;
+	    if(i < n) {
+		bid(i, epsilon);
+	    } else {
+		dummyBid(i, epsilon);
+	    }
+	}
+    }
+
+    /**
+     * Unassigned request i takes the server w/ the smallest distance + price,
+     * raising its price to where it is worth epsilon less to i than its
+     * second choice.  The old owner goes back on the queue
+     */
+    private void bid(int i, double epsilon) {
+	numBids++;
+	int j = tree.nearestTwo(rX[i], rY[i]);
+	double best = tree.getQueryValue();
+	double second = tree.getSecondValue();
+	if(second == Double.MAX_VALUE) {
+	    //Only one server, so nobody else can want it
+	    second = best;
+	}
+	raisePrice(j, price[j] + second - best + epsilon);
+	assign(i, j);
+    }
+
+    /**
+     * Same as bid(), for a dummy request: every server costs it 0, so it
+     * takes the cheapest one, priced up to the second cheapest
+     */
+    private void dummyBid(int i, double epsilon) {
+	int j = priceHeap.poll();
+	double second = priceHeap.isEmpty() ? price[j] : priceHeap.peekKey();
+	priceHeap.insertOrDecrease(j, price[j]);
+	raisePrice(j, second + epsilon);
+	assign(i, j);
+    }
+
+    private void raisePrice(int j, double newPrice) {
+	price[j] = newPrice;
+	tree.update(j, newPrice, true);
+	if(priceHeap != null) {
+	    priceHeap.increaseKey(j, newPrice);
+	}
+    }
+
+    /**
+     * Gives server j to request i, and puts its old owner back on the queue
+     */
+    private void assign(int i, int j) {
+	int oldPerson = objPerson[j];
+	if(oldPerson != -1) {
+	    personObj[oldPerson] = -1;
+	    queue[(queueHead + queueCount) % m] = oldPerson;
+	    queueCount++;
+	}
+	personObj[i] = j;
+	objPerson[j] = i;
+    }
+
+    private double cost(int i, int j) {
+	return xyDistance(sX[j], rX[i], sY[j], rY[i]);
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates
+     */
+    private double xyDistance(int x1, int x2, int y1, int y2) {
+	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
+    }
+}
@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+
+/**
+ * Bertsekas' forward/reverse Auction Algorithm for the assignment problem,
+ * w/ epsilon-scaling
+ *
+ * Another offline engine next to MaxFlowBP and JonkerVolgenant.  It finds the
+ * minimum-cost perfect matching, but only ever keeps O(n) arrays around: costs
+ * are computed from the node coordinates when they are needed, so there is no
+ * n*n matrix or ResidualGraph to build
+ *
+ * High-level description: request nodes ("persons") bid for server nodes
+ * ("objects"), raising the price of the server they want by as much as it is
+ * worth to them over their second choice, plus epsilon.  Unassigned servers
+ * bid for requests the same way (the reverse auction).  A matching found w/
+ * a given epsilon is within n*epsilon of optimal, so the auction is rerun w/
+ * smaller and smaller epsilon, keeping the prices from the last run.  See
+ * "Auction Algorithms for Network Flow Problems: A Tutorial Introduction",
+ * D. P. Bertsekas (1992) for the details
+ *
+ * The auction is done in terms of "benefits" (negated costs), as in the paper.
+ * Costs are rounded to integers (distance * COST_SCALE) and multiplied by n+1,
+ * so the last run w/ epsilon = 1 gives a matching which is optimal for the
+ * rounded costs.  It can only differ from the true optimum when two matchings
+ * are within n/COST_SCALE of each other
+ */
+public class AuctionMatch {
+
+    //Distances are rounded to multiples of 1/COST_SCALE
+    protected final long COST_SCALE = 1000000;
+    //Epsilon is divided by this after each run
+    protected final long EPSILON_FACTOR = 10;
+
+    protected ArrayList<Node> sNodes;
+    protected ArrayList<Node> rNodes;
+
+    protected int n;
+
+    //Coordinates of the request nodes (persons) and server nodes (objects)
+    protected int[] rX;
+    protected int[] rY;
+    protected int[] sX;
+    protected int[] sY;
+
+    //Object prices and person profits, in scaled benefit units
+    protected long[] price;
+    private long[] profit;
+
+    //Server assigned to each request and request assigned to each server, or -1
+    protected int[] personObj;
+    protected int[] objPerson;
+    private int numAssigned;
+
+    //Unassigned persons/objects waiting to bid, as circular queues.  An entry
+    //may have been assigned since it was queued, so check when taking it out
+    private int[] personQueue;
+    private int personHead;
+    private int personCount;
+    private boolean[] personQueued;
+    private int[] objQueue;
+    private int objHead;
+    private int objCount;
+    private boolean[] objQueued;
+
+    /**
+     * sNodes and rNodes must be the same size: there is no rectangular
+     * auction, see JonkerVolgenant for that
+     */
+    public AuctionMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	checkSizes(sNodes, rNodes);
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	n = rNodes.size();
+	rX = new int[n];
+	rY = new int[n];
+	sX = new int[n];
+	sY = new int[n];
+	setCoordinates();
+	price = new long[n];
+	profit = new long[n];
+	personObj = new int[n];
+	objPerson = new int[n];
+	personQueue = new int[n];
+	personQueued = new boolean[n];
+	objQueue = new int[n];
+	objQueued = new boolean[n];
+    }
+
+    private void checkSizes(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	if(sNodes.size() != rNodes.size()) {
+	    throw new IllegalArgumentException("AuctionMatch needs as many server nodes as request nodes, got "
+					       + sNodes.size() + " and " + rNodes.size());
+	}
+    }
+
+    private void setCoordinates() {
+	for(int i = 0; i < n; i++) {
+	    rX[i] = rNodes.get(i).getX();
+	    rY[i] = rNodes.get(i).getY();
+	    sX[i] = sNodes.get(i).getX();
+	    sY[i] = sNodes.get(i).getY();
+	}
+    }
+
+    /**
+     * Runs the Algorithm again on new nodes, n of each as before, reusing
+     * every array (and, for ParallelAuctionMatch, the pool)
+     */
+    public ArrayList<MatchInfo> resolve(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	if(sNodes.size() != n || rNodes.size() != n) {
+	    throw new IllegalArgumentException("resolve() needs " + n + " server and request nodes, got "
+					       + sNodes.size() + " and " + rNodes.size());
+	}
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	setCoordinates();
+	return run();
+    }
+
+    /**
+     * Run the Algorithm, and return the optimal matching
+     *
+     * sNodes and rNodes must be the same size
+     */
+    public ArrayList<MatchInfo> run() {
+	//All benefits are <= 0, so zero prices and profits satisfy
+	//profit[i] + price[j] >= benefit(i,j), which every auction keeps to
+	//within epsilon
+	for(int k = 0; k < n; k++) {
+	    price[k] = 0;
+	    profit[k] = 0;
+	}
+	long epsilon = initialEpsilon();
+	while(true) {
+	    //System.out.println("Auction w/ epsilon " + epsilon);
+	    runAuction(epsilon);
+	    if(epsilon == 1) {
+		break;
+	    }
+	    //Raise the profits so they are within the new, smaller epsilon
+	    long newEpsilon = Math.max(1, epsilon/EPSILON_FACTOR);
+	    for(int i = 0; i < n; i++) {
+		profit[i] += epsilon - newEpsilon;
+	    }
+	    epsilon = newEpsilon;
+	}
+	return getMatching();
+    }
+
+    /**
+     * The current assignment, as MatchInfos w/ the real (unrounded) distances
+     */
+    protected ArrayList<MatchInfo> getMatching() {
+	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(n);
+	for(int i = 0; i < n; i++) {
+	    int j = personObj[i];
+	    matches.add(new MatchInfo(sNodes.get(j), rNodes.get(i), xyDistance(sX[j], rX[i], sY[j], rY[i])));
+	}
+	return matches;
+    }
+
+    /**
+     * Total cost of the matching found by run()
+     */
+    public double getTotalCost() {
+	double total = 0;
+	for(int i = 0; i < n; i++) {
+	    int j = personObj[i];
+	    total += xyDistance(sX[j], rX[i], sY[j], rY[i]);
+	}
+	return total;
+    }
+
+    /**
+     * Starts w/ epsilon at 1/100 of the largest possible cost, found from the
+     * bounding box of all the nodes.  Starting any higher just makes the
+     * first auction's bidders and objects outbid each other for longer
+     */
+    protected long initialEpsilon() {
+	if(n == 0) {
+	    return 1;
+	}
+	int minX = rX[0];
+	int maxX = rX[0];
+	int minY = rY[0];
+	int maxY = rY[0];
+	for(int k = 0; k < n; k++) {
+	    minX = Math.min(minX, Math.min(rX[k], sX[k]));
+	    maxX = Math.max(maxX, Math.max(rX[k], sX[k]));
+	    minY = Math.min(minY, Math.min(rY[k], sY[k]));
+	    maxY = Math.max(maxY, Math.max(rY[k], sY[k]));
+	}
+	long maxCost = Math.round(xyDistance(minX, maxX, minY, maxY)*COST_SCALE)*(n+1);
+	return Math.max(1, maxCost/100);
+    }
+
+    /**
+     * Benefit of assigning request i to server j: its scaled, negated cost
+     */
+    protected long benefit(int i, int j) {
+	return -Math.round(xyDistance(sX[j], rX[i], sY[j], rY[i])*COST_SCALE)*(n+1);
+    }
+
+    /**  -------------------------AUCTION-------------------------  */
+
+    /**
+     * One full auction w/ the given epsilon, starting from the current prices
+     * and profits and no assignments
+     *
+     * Forward and reverse iterations take turns, each side bidding until the
+     * number of assigned pairs goes up (switching any sooner could cycle)
+     */
+    private void runAuction(long epsilon) {
+	personHead = 0;
+	personCount = 0;
+	objHead = 0;
+	objCount = 0;
+	for(int k = 0; k < n; k++) {
+	    personObj[k] = -1;
+	    objPerson[k] = -1;
+	    personQueued[k] = false;
+	    objQueued[k] = false;
+	}
+	numAssigned = 0;
+	for(int i = 0; i < n; i++) {
+	    queuePerson(i);
+	    queueObject(i);
+	}
+	if(n == 1) {
+	    assign(0, 0);
+	    numAssigned = 1;
+	    return;
+	}
+	boolean forward = true;
+	while(numAssigned < n) {
+	    int assignedBefore = numAssigned;
+	    while(numAssigned == assignedBefore) {
+		if(forward) {
+		    forwardBid(nextPerson(), epsilon);
+		} else {
+		    reverseBid(nextObject(), epsilon);
+		}
+	    }
+	    forward = !forward;
+	}
+    }
+
+    /**
+     * Unassigned person i bids for the object w/ the best value
+     * benefit - price, raising its price to where it is worth epsilon less
+     * to i than i's second choice
+     */
+    private void forwardBid(int i, long epsilon) {
+	long best = Long.MIN_VALUE;
+	long second = Long.MIN_VALUE;
+	int bestJ = -1;
+	for(int j = 0; j < n; j++) {
+	    long v = benefit(i, j) - price[j];
+	    if(v > best) {
+		second = best;
+		best = v;
+		bestJ = j;
+	    } else if(v > second) {
+		second = v;
+	    }
+	}
+	price[bestJ] += best - second + epsilon;
+	profit[i] = second - epsilon;
+	int oldPerson = objPerson[bestJ];
+	if(oldPerson == -1) {
+	    numAssigned++;
+	} else {
+	    personObj[oldPerson] = -1;
+	    queuePerson(oldPerson);
+	}
+	assign(i, bestJ);
+    }
+
+    /**
+     * Unassigned object j bids for the person w/ the best value
+     * benefit - profit, the mirror image of forwardBid()
+     */
+    private void reverseBid(int j, long epsilon) {
+	long best = Long.MIN_VALUE;
+	long second = Long.MIN_VALUE;
+	int bestI = -1;
+	for(int i = 0; i < n; i++) {
+	    long v = benefit(i, j) - profit[i];
+	    if(v > best) {
+		second = best;
+		best = v;
+		bestI = i;
+	    } else if(v > second) {
+		second = v;
+	    }
+	}
+	profit[bestI] += best - second + epsilon;
+	price[j] = second - epsilon;
+	int oldObj = personObj[bestI];
+	if(oldObj == -1) {
+	    numAssigned++;
+	} else {
+	    objPerson[oldObj] = -1;
+	    queueObject(oldObj);
+	}
+	assign(bestI, j);
+    }
+
+    private void assign(int i, int j) {
+	personObj[i] = j;
+	objPerson[j] = i;
+    }
+
+    /**  -------------------------QUEUES-------------------------  */
+
+    private void queuePerson(int i) {
+	if(!personQueued[i]) {
+	    personQueue[(personHead + personCount) % n] = i;
+	    personCount++;
+	    personQueued[i] = true;
+	}
+    }
+
+    /**
+     * Takes the next person off the queue which is still unassigned
+     */
+    private int nextPerson() {
+	while(true) {
+	    int i = personQueue[personHead];
+	    personHead = (personHead + 1) % n;
+	    personCount--;
+	    personQueued[i] = false;
+	    if(personObj[i] == -1) {
+		return i;
+	    }
+	}
+    }
+
+    private void queueObject(int j) {
+	if(!objQueued[j]) {
+	    objQueue[(objHead + objCount) % n] = j;
+	    objCount++;
+	    objQueued[j] = true;
+	}
+    }
+
+    private int nextObject() {
+	while(true) {
+	    int j = objQueue[objHead];
+	    objHead = (objHead + 1) % n;
+	    objCount--;
+	    objQueued[j] = false;
+	    if(objPerson[j] == -1) {
+		return j;
+	    }
+	}
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates
+     */
+    protected double xyDistance(int x1, int x2, int y1, int y2) {
+	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
+    }
+}
@@ -58,38 +58,9 @@ public class BadInstanceTest {
 
     /**  -------------------------MAX FLOW-------------------------  */
     
-    private Graph makeGraph(ArrayList<Node> rNodes, ArrayList<Node> sNodes) {
-	Graph g = new Graph();
-	int index = 1;
-	for(Node r: rNodes) {
-	    g.xNodes.put(index, r);
-	    g.addEdgeFromSource(index);
-	    index++;
-	}
-	index = 1;
-	for(Node s: sNodes) {
-	    g.yNodes.put(index, s);
-	    g.addEdgeToSink(index);
-	    index++;
-	}
-	//Add all the edges
-	index = 1;
-	int sIndex = 1;
-	for(Node r: rNodes) {
-	    //Reset server node index
-	    sIndex = 1;
-	    for(Node s: sNodes) {
-		g.addEdge(index, sIndex, xyDistance(r.xPos, s.xPos, r.yPos, s.yPos));
-		sIndex++;
-	    }
-	    index++;
-	}
-	return g;
-    }
-
-    public ArrayList<Graph.Edge> runMaxFlowBP() {
-	MaxFlowBP mf = new MaxFlowBP(makeGraph(rNodes, sNodes));
-	ArrayList<Graph.Edge> mfMatching = mf.runAlgorithm();
+    public ArrayList<MatchInfo> runMaxFlowBP() {
+	MaxFlowBP mf = new MaxFlowBP(new ResidualGraph(rNodes, sNodes));
+	ArrayList<MatchInfo> mfMatching = mf.runResidualAlgorithm();
 	return mfMatching;
     }
 
@@ -112,7 +83,7 @@ public class BadInstanceTest {
 	    int minDistance = maxDistance;
 	    int selectedSNodeIndex = 0;
 	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		int dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
+		int dist = xyDistance(r.getX(), sNodesCopy.get(i).getX(), r.getY(), sNodesCopy.get(i).getY());
 		if(dist < minDistance) {
 		    minDistance = dist;
 		    selectedSNodeIndex = i;
@@ -127,7 +98,7 @@ public class BadInstanceTest {
 	    int minDistance = maxDistance;
 	    int selectedNodeIndex = 0;
 	    for(int j = 0; j < sNodes; j++) {
-		int dist = xyDistance(rNodes.get(i).xPos, sNodesCopy.get(j)[0], rNodes.get(i)[1], sNodesCopy.get(j)[1]);
+		int dist = xyDistance(rNodes.get(i).getX(), sNodesCopy.get(j)[0], rNodes.get(i)[1], sNodesCopy.get(j)[1]);
 		if(dist < minDistance) {
 		    minDistance = dist;
 		    selectedNodeIndex = j;
@@ -171,7 +142,7 @@ public class BadInstanceTest {
 	    Node rNode = rNodes.get(i);
 	    for(int j = 0; j < sNodes.size(); j++) {
 		Node sNode = sNodes.get(j);
-		double dist = xyDistance(rNode.xPos, sNode.xPos, rNode.yPos, sNode.yPos);
+		double dist = xyDistance(rNode.getX(), sNode.getX(), rNode.getY(), sNode.getY());
 		allMatches.add(new MatchInfo(rNode, sNode, dist));
 	    }
 	}
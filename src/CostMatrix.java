@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+
+/**
+ * Dense matrix of the distances between every request node (row) and every
+ * server node (column), for the offline engines which need all of them
+ * (JonkerVolgenant, OptBottleneck)
+ *
+ * Stored as one flat array, row by row, either of doubles or, w/
+ * useFloat, of floats, which halves the memory: n = 20000 is 3.2 GB of
+ * doubles but 1.6 GB of floats.  Distances between integer coordinates are
+ * at most a few million, so a float is within about 1e-7 of the distance
+ * (relative), plenty to find the matching by.  The engines work out the
+ * distances they report (MatchInfo.distance, total cost) again in double
+ * from the nodes, so those come out the same either way
+ *
+ * Being one Java array, this holds at most 2^31 - 1 costs, and all of them on
+ * the heap.  Bigger ones throw IllegalArgumentException; see MappedCostMatrix
+ * for those
+ */
+public class CostMatrix {
+
+    protected int numRows;
+    protected int numCols;
+
+    //Exactly one of these is used
+    private double[] doubleCosts;
+    private float[] floatCosts;
+
+    /**
+     * Used by subclasses which store their costs somewhere else
+     */
+    protected CostMatrix(int numRows, int numCols) {
+	this.numRows = numRows;
+	this.numCols = numCols;
+    }
+
+    /**
+     * Builds the matrix of distances from each of rNodes to each of sNodes
+     *
+     * Throws IllegalArgumentException if there are more than 2^31 - 1 pairs
+     */
+    public CostMatrix(ArrayList<Node> sNodes, ArrayList<Node> rNodes, boolean useFloat) {
+	this(rNodes.size(), sNodes.size());
+	//Checked here, so i*numCols + j can't overflow in get() and set()
+	long size = (long)numRows*numCols;
+	if(size > Integer.MAX_VALUE) {
+	    throw new IllegalArgumentException(numRows + " x " + numCols + " costs won't fit in one array,"
+					       + " use a MappedCostMatrix");
+	}
+	if(useFloat) {
+	    floatCosts = new float[(int)size];
+	} else {
+	    doubleCosts = new double[(int)size];
+	}
+	setNodes(sNodes, rNodes);
+    }
+
+    public int getNumRows() {
+	return numRows;
+    }
+
+    public int getNumCols() {
+	return numCols;
+    }
+
+    public boolean isFloat() {
+	return floatCosts != null;
+    }
+
+    /**
+     * Distance from request node i to server node j (rounded to a float if
+     * isFloat())
+     */
+    public double get(int i, int j) {
+	if(floatCosts != null) {
+	    return floatCosts[i*numCols + j];
+	}
+	return doubleCosts[i*numCols + j];
+    }
+
+    public void set(int i, int j, double c) {
+	if(floatCosts != null) {
+	    floatCosts[i*numCols + j] = (float)c;
+	} else {
+	    doubleCosts[i*numCols + j] = c;
+	}
+    }
+
+    /**
+     * Overwrites every cost w/ the distances for new nodes, the same number
+     * of each as before
+     */
+    public void setNodes(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	for(int i = 0; i < numRows; i++) {
+	    Node r = rNodes.get(i);
+	    for(int j = 0; j < numCols; j++) {
+		Node s = sNodes.get(j);
+		set(i, j, xyDistance(s.getX(), r.getX(), s.getY(), r.getY()));
+	    }
+	}
+    }
+
+    /**
+     * Lets go of the costs, after which the matrix can't be used.  Nothing to
+     * do here but drop the array; MappedCostMatrix also deletes its file
+     */
+    public void close() {
+	doubleCosts = null;
+	floatCosts = null;
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates
+     */
+    protected double xyDistance(int x1, int x2, int y1, int y2) {
+	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
+    }
+}
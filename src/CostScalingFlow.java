@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+
+/**
+ * Goldberg's cost-scaling push-relabel algorithm for min-cost flow, on the
+ * same source/xNodes/yNodes/sink network MaxFlowBP works on
+ *
+ * An alternative to MaxFlowBP's successive shortest paths, w/ a much better
+ * worst case on dense graphs.  See "An Efficient Implementation of a Scaling
+ * Minimum-Cost Flow Algorithm", A. V. Goldberg (1997) for the details
+ *
+ * High-level description: start w/ any flow of the right value (one unit for
+ * each of the min(numX, numY) pairs that can be matched), then improve it
+ * w/ a series of refine() steps.  Each step halves (well, divides by
+ * EPSILON_FACTOR) epsilon: it saturates every residual arc w/ a negative
+ * reduced cost, which leaves some nodes w/ extra flow, and then pushes that
+ * flow along arcs w/ negative reduced cost, lowering the price of a node
+ * whenever it has none, until the flow balances again.  After a step, no
+ * residual arc has reduced cost below -epsilon
+ *
+ * Costs are rounded to integers (distance * COST_SCALE) and multiplied by
+ * numNodes+1, so after the step w/ epsilon = 1 the flow is optimal for the
+ * rounded costs
+ *
+ * Works on a ResidualGraph built by one of its own constructors (so, not an
+ * ImplicitBipartiteGraph, which can't hold more than one unit of flow into a
+ * yNode at a time).  Capacities, like everywhere else, are all 1
+ */
+public class CostScalingFlow {
+
+    //Distances are rounded to multiples of 1/COST_SCALE
+    private final long COST_SCALE = 1000000;
+    //Epsilon is divided by this after each refine()
+    private final long EPSILON_FACTOR = 16;
+
+    private ResidualGraph rg;
+    private int numNodes;
+
+    //Scaled, rounded cost of every arc, and scaled price of every node
+    private long[] cost;
+    private long[] price;
+
+    //Flow into a node minus flow out of it, for the current refine()
+    private int[] excess;
+
+    //Next arc to look at for each node when discharging it
+    private int[] currentArc;
+
+    //Nodes w/ positive excess, in a circular FIFO queue
+    private int[] active;
+    private int activeHead;
+    private int activeCount;
+    private boolean[] isActive;
+
+    public CostScalingFlow(ResidualGraph rg) {
+	this.rg = rg;
+	numNodes = rg.getNumNodes();
+	int numArcs = rg.endArc(numNodes - 1);
+	cost = new long[numArcs];
+	for(int a = 0; a < numArcs; a++) {
+	    if(!rg.isBackwards(a)) {
+		long c = Math.round(rg.getCost(a)/rg.getCostScale()*COST_SCALE)*(numNodes+1);
+		cost[a] = c;
+		cost[rg.getReverse(a)] = -c;
+	    }
+	}
+	price = new long[numNodes];
+	excess = new int[numNodes];
+	currentArc = new int[numNodes];
+	active = new int[numNodes];
+	isActive = new boolean[numNodes];
+    }
+
+    /**
+     * Run the Algorithm, and return the optimal matching, w/ the xNode as
+     * sNode (as MaxFlowBP.runResidualAlgorithm() does)
+     *
+     * Leaves the optimal flow in rg, and the prices of the nodes (in rg's
+     * cost units, not this class's) as rg's prices
+     */
+    public ArrayList<MatchInfo> run() {
+	rg.reset();
+	for(int v = 0; v < numNodes; v++) {
+	    price[v] = 0;
+	}
+	long maxCost = 0;
+	for(int a = 0; a < cost.length; a++) {
+	    maxCost = Math.max(maxCost, cost[a]);
+	}
+	initialFlow();
+	//W/ all prices 0 the initial flow is maxCost-optimal
+	long epsilon = maxCost;
+	while(epsilon > 1) {
+	    epsilon = Math.max(1, epsilon/EPSILON_FACTOR);
+	    refine(epsilon);
+	}
+	for(int v = 0; v < numNodes; v++) {
+	    rg.setPrice(v, (double)price[v]/(COST_SCALE*(numNodes+1))*rg.getCostScale());
+	}
+	return getMatching();
+    }
+
+    /**
+     * Sends one unit of flow through each xNode that can be given a free
+     * yNode, in order.  On the complete bipartite network this is a flow of
+     * value min(numX, numY)
+     */
+    private void initialFlow() {
+	int source = rg.getSource();
+	int sink = rg.getSink();
+	boolean[] used = new boolean[numNodes];
+	for(int a0 = rg.firstArc(source); a0 < rg.endArc(source); a0++) {
+	    int x = rg.getHead(a0);
+	    for(int a = rg.firstArc(x); a < rg.endArc(x); a++) {
+		int y = rg.getHead(a);
+		if(rg.isBackwards(a) || !rg.isYNode(y) || used[y]) {
+		    continue;
+		}
+		for(int a1 = rg.firstArc(y); a1 < rg.endArc(y); a1++) {
+		    if(rg.getHead(a1) == sink && !rg.isBackwards(a1)) {
+			rg.push(source, a0);
+			rg.push(x, a);
+			rg.push(y, a1);
+			used[y] = true;
+			break;
+		    }
+		}
+		break;
+	    }
+	}
+    }
+
+    /**  -------------------------REFINE-------------------------  */
+
+    /**
+     * Turns an (epsilon*EPSILON_FACTOR)-optimal flow into an epsilon-optimal
+     * one
+     */
+    private void refine(long epsilon) {
+	activeHead = 0;
+	activeCount = 0;
+	for(int v = 0; v < numNodes; v++) {
+	    excess[v] = 0;
+	    currentArc[v] = rg.firstArc(v);
+	    isActive[v] = false;
+	}
+	//Saturate every residual arc w/ negative reduced cost
+	for(int v = 0; v < numNodes; v++) {
+	    for(int a = rg.firstArc(v); a < rg.endArc(v); a++) {
+		if(rg.hasResidual(a) && reducedCost(v, a) < 0) {
+		    rg.push(v, a);
+		    excess[v]--;
+		    excess[rg.getHead(a)]++;
+		}
+	    }
+	}
+	for(int v = 0; v < numNodes; v++) {
+	    if(excess[v] > 0) {
+		activate(v);
+	    }
+	}
+	while(activeCount > 0) {
+	    int v = active[activeHead];
+	    activeHead = (activeHead + 1) % numNodes;
+	    activeCount--;
+	    isActive[v] = false;
+	    discharge(v, epsilon);
+	}
+    }
+
+    /**
+     * Pushes all of v's excess along admissible arcs (residual arcs w/
+     * negative reduced cost), relabeling v whenever it runs out of them
+     */
+    private void discharge(int v, long epsilon) {
+	while(excess[v] > 0) {
+	    int a = currentArc[v];
+	    if(a == rg.endArc(v)) {
+		relabel(v, epsilon);
+		currentArc[v] = rg.firstArc(v);
+		continue;
+	    }
+	    if(rg.hasResidual(a) && reducedCost(v, a) < 0) {
+		int w = rg.getHead(a);
+		rg.push(v, a);
+		excess[v]--;
+		excess[w]++;
+		if(excess[w] > 0) {
+		    activate(w);
+		}
+		//Unit capacities, so a is saturated now
+	    }
+	    currentArc[v]++;
+	}
+    }
+
+    /**
+     * Lowers v's price as far as it can go while keeping every residual arc
+     * out of v epsilon-optimal, which makes at least one of them admissible
+     */
+    private void relabel(int v, long epsilon) {
+	long newPrice = Long.MIN_VALUE;
+	for(int a = rg.firstArc(v); a < rg.endArc(v); a++) {
+	    if(rg.hasResidual(a)) {
+		newPrice = Math.max(newPrice, price[rg.getHead(a)] - cost[a]);
+	    }
+	}
+	price[v] = newPrice - epsilon;
+    }
+
+    private long reducedCost(int tail, int a) {
+	return cost[a] + price[tail] - price[rg.getHead(a)];
+    }
+
+    private void activate(int v) {
+	if(!isActive[v]) {
+	    active[(activeHead + activeCount) % numNodes] = v;
+	    activeCount++;
+	    isActive[v] = true;
+	}
+    }
+
+    /**
+     * Reads the matched xNode/yNode pairs out of rg
+     */
+    private ArrayList<MatchInfo> getMatching() {
+	ArrayList<MatchInfo> matching = new ArrayList<MatchInfo>();
+	for(int i = 0; i < rg.getNumX(); i++) {
+	    int x = rg.xIndex(i);
+	    int y = rg.getMate(x);
+	    if(y != -1) {
+		matching.add(new MatchInfo(rg.getNode(x), rg.getNode(y), rg.getEdgeCost(x, y)/rg.getCostScale()));
+	    }
+	}
+	return matching;
+    }
+}
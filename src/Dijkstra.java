@@ -1,242 +1,217 @@
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 
 /**
  * It's weird to encapsulate an algorithm as an object.  I didn't plan out
  * the whole structure of this project very well!
  *
- * That said, this class will run Dijkstra's Algorithm on a Graph and return
- * the distances from the source node to all other nodes
- *
- * There are many commented-out println() statements, which were useful for
- * debugging
+ * That said, this class will run Dijkstra's Algorithm on a ResidualGraph and
+ * return the distances from the source node to all other nodes
  */
 public class Dijkstra {
 
-    //
-    private Graph g;
-    
-    private ArrayList<Node> unvisitedNodes;
-    private ArrayList<Node> visitedNodes;
+    private ResidualGraph rg;
 
     /**
-     * Stores distances from initial node to all other nodes.
-     *
-     * Key - Node
-     * Value - distance from initial node to key Node
+     * Distance from source to each node index of rg, and the arc which leads
+     * into each node on its shortest path (-1 for the source and any node
+     * which can't be reached)
      */
-    private HashMap<Node, PathInfo> pathsFromSource;
+    private double[] dist;
+    private int[] predArc;
+    private BitSet visited;
 
     /**
-     * Initialization of the arrays and pathsFromSource
+     * If true, the closest unvisited node is taken from a heap instead of
+     * scanning every unvisited node, which makes a run O(E log V) instead of
+     * O(V^2) node scans
      */
-    public Dijkstra(Graph g) {
-	this.g = g;
-	unvisitedNodes = new ArrayList<Node>(g.xNodes.values());
-	unvisitedNodes.addAll(g.yNodes.values());
-	visitedNodes = new ArrayList<Node>();
-	pathsFromSource = new HashMap<Node, PathInfo>();
-    }
+    private boolean useHeap;
+    private IndexedMinHeap heap;
+
+    //Used instead of heap w/ integer costs, see setUseRadixHeap()
+    private RadixHeap radixHeap;
 
     /**
-     * Initializes and runs the algorithm
+     * If true, stop as soon as the shortest path to a free (unmatched) yNode
+     * is known, instead of settling every node.  That's all MaxFlowBP needs
      *
-     * Returns pathsFromSource
+     * The yNode->sink arcs carry the yNode prices, so the search just stops
+     * once the sink is visited
      */
-    public HashMap<Node, PathInfo> runAlgorithm() {
-	initializeDistances();
-	while(unvisitedNodes.size() > 0) {
-	    Node curNode = getMinimumDistUnvisitedNode();
-	    //System.out.println("\nVisiting " + curNode);
-	    updateDistances(curNode);
-	    unvisitedNodes.remove(curNode);
-	    visitedNodes.add(curNode);
-	}
-	return pathsFromSource;
-    }
+    private boolean earlyTermination;
+
+    //Node indices of rg in the order they were visited, for MaxFlowBP's price update
+    private int[] settled;
+    private int numSettled;
 
     /**
-     * Return the unvisited node w/ the minimum distance from source
+     * Runs on rg.  Use runResidual()
      */
-    private Node getMinimumDistUnvisitedNode() {
-	Node toReturn = unvisitedNodes.get(0);
-	double minDist = pathsFromSource.get(toReturn).distance;
-	for(int i = 1; i < unvisitedNodes.size(); i++) {
-	    Node n = unvisitedNodes.get(i);
-	    double nDist = pathsFromSource.get(n).distance;
-	    if(nDist < minDist) {
-		toReturn = n;
-		minDist = nDist;
-	    }
-	}
-	return toReturn;
+    public Dijkstra(ResidualGraph rg) {
+	this(rg, false);
     }
 
-    /**
-     * Return ArrayList of all unvisited nodes adjacent to Node n
-     */
-    private ArrayList<Node> findNeighbors(Node n) {
-	ArrayList<Node> neighbors = new ArrayList<Node>();
-	for(Graph.Edge e: g.edges) {
-	    if(e.getSource().equals(n) && !visitedNodes.contains(e.getEnd())) {
-		neighbors.add(e.getEnd());
-	    }
+    public Dijkstra(ResidualGraph rg, boolean useHeap) {
+	this.rg = rg;
+	this.useHeap = useHeap;
+	dist = new double[rg.getNumNodes()];
+	predArc = new int[rg.getNumNodes()];
+	visited = new BitSet(rg.getNumNodes());
+	settled = new int[rg.getNumNodes()];
+	if(useHeap) {
+	    heap = new IndexedMinHeap(rg.getNumNodes());
 	}
-	return neighbors;
     }
 
-    /**
-     * Update the distances from Node n to all neighbors
-     */
-    private void updateDistances(Node curNode) {
-	ArrayList<Node> neighbors = findNeighbors(curNode);
-	for(Node neighbor: neighbors) {
-	    double distanceThroughNode = pathsFromSource.get(curNode).distance + getAdjustedDistance(curNode, neighbor);
-	    PathInfo neighborPI = pathsFromSource.get(neighbor);
-	    if(distanceThroughNode < neighborPI.distance) {
-		//System.out.println("new Min Dist from Src found for " + neighbor + ".  Replacing " + neighborPI.distance + " w/ " + distanceThroughNode);
-		neighborPI.distance = distanceThroughNode;
-		if(pathsFromSource.get(curNode).path != null) {
-		    neighborPI.path = new ArrayList<Graph.Edge>(pathsFromSource.get(curNode).path);
-		} else {
-		    neighborPI.path = new ArrayList<Graph.Edge>();
-		}
-		//Add self to path
-		neighborPI.path.add(g.getEdge(curNode, neighbor));
-		
-		//System.out.println("new path to >> " + neighbor + ": \n" + neighborPI.path);
-	    }
-	}
+    public void setEarlyTermination(boolean earlyTermination) {
+	this.earlyTermination = earlyTermination;
     }
 
     /**
-     * Returns the distance of the edge that joins two nodes
+     * Take the closest node from a RadixHeap, which only works on whole
+     * number distances, so only if rg is in integer-cost mode (see
+     * ResidualGraph.setCostScale()).  Ignored otherwise
      */
-    private double getDistance(Node source, Node end) {
-	for(Graph.Edge e: g.edges) {
-	    if(e.getSource().equals(source) && e.getEnd().equals(end)) {
-		return e.getDistance();
+    public void setUseRadixHeap(boolean useRadixHeap) {
+	if(useRadixHeap && rg.hasIntegerCosts()) {
+	    if(radixHeap == null) {
+		radixHeap = new RadixHeap();
 	    }
+	} else {
+	    radixHeap = null;
 	}
-	//Should NEVER happen, as it is only called on a node and a known neighbor
-	return -1;
     }
 
     /**
-     * Returns the "price-adjusted" distance between two nodes, which is the sum
-     * of the prices of each node and the distance of the edge joining them 
+     * The node indices visited in the last runResidual(), in order.  Only
+     * the first getNumSettled() entries are filled in
      */
-    private double getAdjustedDistance(Node source, Node end) {
-	for(Graph.Edge e: g.edges) {
-	    if(e.getSource().equals(source) && e.getEnd().equals(end)) {
-		return e.getAdjustedDistance();
-	    }
-	}
-	//Should NEVER happen, as it is only called on a node and a known neighbor
-	return -1;
+    public int[] getSettledNodes() {
+	return settled;
+    }
+
+    public int getNumSettled() {
+	return numSettled;
     }
-    
+
     /**
-     * Initialize the distances from initial node to all other nodes.
+     * Runs the algorithm on the node indices and arcs of rg, following only
+     * arcs that have residual capacity.  Paths aren't stored, only the arc
+     * into each node; see getPredecessorArcs()
      *
-     * Distance for the source node = 0
-     * Distance for all other nodes = Interger.MAX_VALUE
+     * Returns the distance from source to each node index
      */
-    private void initializeDistances() {
-	try{
-	    //Put in the source node
-	    pathsFromSource.put(g.xNodes.get(-1), new PathInfo(0.0, null));
-	} catch (Exception e) {
-	    System.out.println("\n\n------EMPTY LIST------");
-	    System.out.println("------EXITING------\n\n");
-	    System.exit(0);
+    public double[] runResidual() {
+	int numNodes = rg.getNumNodes();
+	int sink = rg.getSink();
+	visited.clear();
+	numSettled = 0;
+	for(int v = 0; v < numNodes; v++) {
+	    dist[v] = Double.MAX_VALUE;
+	    predArc[v] = -1;
 	}
-	for(Node n: unvisitedNodes) {
-	    //Don't clobber the 0 value of the source node!
-	    if(n.equals(g.source)) {
+	dist[rg.getSource()] = 0.0;
+	if(radixHeap != null) {
+	    radixHeap.clear();
+	    radixHeap.insert(rg.getSource(), 0);
+	    while(!radixHeap.isEmpty()) {
+		int curNode = radixHeap.poll();
+		if(visited.get(curNode)) {
+		    //Stale copy, inserted before its distance went down
+		    continue;
+		}
+		settle(curNode);
+		if(curNode == sink) {
+		    if(earlyTermination) {
+			break;
+		    }
+		    continue;
+		}
+		updateResidualDistances(curNode);
+	    }
+	    return dist;
+	}
+	if(useHeap) {
+	    heap.clear();
+	    heap.insertOrDecrease(rg.getSource(), 0.0);
+	    while(!heap.isEmpty()) {
+		int curNode = heap.poll();
+		settle(curNode);
+		if(curNode == sink) {
+		    if(earlyTermination) {
+			break;
+		    }
+		    //No path from source to sink goes through the sink, so don't
+		    //follow its arcs (which can have negative adjusted costs after
+		    //a MaxFlowBP warm start)
+		    continue;
+		}
+		updateResidualDistances(curNode);
+	    }
+	    return dist;
+	}
+	for(int count = 0; count < numNodes; count++) {
+	    //Find the unvisited node w/ the minimum distance from source
+	    int curNode = -1;
+	    for(int v = 0; v < numNodes; v++) {
+		if(!visited.get(v) && (curNode == -1 || dist[v] < dist[curNode])) {
+		    curNode = v;
+		}
+	    }
+	    if(dist[curNode] == Double.MAX_VALUE) {
+		//Everything left is unreachable
+		break;
+	    }
+	    settle(curNode);
+	    if(curNode == sink) {
+		if(earlyTermination) {
+		    break;
+		}
 		continue;
 	    }
-	    pathsFromSource.put(n, new PathInfo(Double.MAX_VALUE, null));
+	    updateResidualDistances(curNode);
 	}
+	return dist;
+    }
+
+    private void settle(int v) {
+	visited.set(v);
+	settled[numSettled] = v;
+	numSettled++;
     }
 
     /**
-     * Simple graph for testing
-     *
-     *
-     * N1---1---N2---5---N3
-     *          |      / |
-     *          |     /  | 
-     *          1    1   2
-     *          |  /     |
-     *          | /      |
-     *          N4---9---N5
-     *          \        /
-     *           2      2
-     *            \    /
-     *             \  /
-     *              N6
+     * Update the distances from node index curNode to all unvisited nodes
+     * it has a residual arc into
      */
-    
-    /**
-    public static Graph makeTestGraph() {
-	Graph g = new Graph();
-	Node n1 = new Node("1");
-	Node n2 = new Node("2");
-	Node n3 = new Node("3");
-	Node n4 = new Node("4");
-	Node n5 = new Node("5");
-	Node n6 = new Node("6");
-	g.addEdge(n1, n2, 1);
-	g.addEdge(n2, n3, 5);
-	g.addEdge(n2, n4, 1);
-	g.addEdge(n4, n3, 1);
-	g.addEdge(n4, n5, 9);
-	g.addEdge(n3, n5, 2);
-	g.addEdge(n4, n6, 2);
-	g.addEdge(n6, n5, 2);
-	return g;
-    }
-    
-
-    public static Graph makeTestGraph() {
-	Graph g = new Graph();
-	g.xNodes.put(1, new Node("x1"));
-	g.xNodes.put(2, new Node("x2"));
-	g.xNodes.put(3, new Node("x3"));
-	for(int i: g.xNodes.keySet()) {
-	    if(i == -1)
+    private void updateResidualDistances(int curNode) {
+	for(int a = rg.firstArc(curNode); a < rg.endArc(curNode); a++) {
+	    if(!rg.hasResidual(a)) {
 		continue;
-	    g.addEdgeFromSource(i);
-	}
-	g.yNodes.put(1, new Node("y1"));
-	g.yNodes.put(2, new Node("y2"));
-	g.yNodes.put(3, new Node("y3"));
-	
-	g.addEdge(1, 1, 3);
-	g.addEdge(1, 2, 1);
-	g.addEdge(1, 3, 4);
-	
-	g.addEdge(2, 1, 2);
-	g.addEdge(2, 2, 5);
-	g.addEdge(2, 3, 2);
-	
-	g.addEdge(3, 1, 4);
-	g.addEdge(3, 2, 6);
-	g.addEdge(3, 3, 2);
-	for(int i: g.yNodes.keySet()) {
-	    if(i == -1)
+	    }
+	    int neighbor = rg.getHead(a);
+	    if(visited.get(neighbor)) {
 		continue;
-	    g.addEdgeToSink(i);
+	    }
+	    double distanceThroughNode = dist[curNode] + rg.getAdjustedCost(curNode, a);
+	    if(distanceThroughNode < dist[neighbor]) {
+		dist[neighbor] = distanceThroughNode;
+		predArc[neighbor] = a;
+		if(radixHeap != null) {
+		    //A whole number, so the cast is exact
+		    radixHeap.insert(neighbor, (long)distanceThroughNode);
+		} else if(useHeap) {
+		    heap.insertOrDecrease(neighbor, distanceThroughNode);
+		}
+	    }
 	}
-	return g;
     }
 
-    public static void main(String[] args) {
-	Graph g = makeTestGraph();
-	Dijkstra d = new Dijkstra(g);
-	d.runAlgorithm();
+    /**
+     * After runResidual(), the arc which leads into each node index on its
+     * shortest path from source
+     */
+    public int[] getPredecessorArcs() {
+	return predArc;
     }
-    */
-
-}
\ No newline at end of file
+}
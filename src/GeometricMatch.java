@@ -0,0 +1,314 @@
+import java.util.ArrayList;
+
+/**
+ * Exact minimum-cost matching for points in the plane, w/ the cost of a pair
+ * being the Euclidean distance between them (as in every parking model)
+ *
+ * Finds the same matching as JonkerVolgenant: every request node (row) is
+ * given a server node (column) along a shortest augmenting path, w/ reduced
+ * costs xyDistance - colPrice.  The difference is how the next column is
+ * found.  JonkerVolgenant keeps a distance for every column, so each row it
+ * scans costs O(m).  Here, each scanned row only keeps its best column, found
+ * w/ a KdTree over the servers whose weights are the negated column prices:
+ * the column minimizing distance - colPrice is exactly the tree's weighted
+ * nearest neighbor.  Scanned rows sit in a heap keyed by the distance their
+ * best column would get, and when a row's best column is taken by someone
+ * else the row simply asks the tree again.  Columns are removed from the tree
+ * once their distance is final, so no pair is ever looked at twice
+ *
+ * The tree only prunes well because the costs are distances: no n*m matrix
+ * is built, and most pairs are never looked at
+ *
+ * Like JonkerVolgenant, the two sides don't have to be the same size.  The
+ * rows are always the smaller side, so if there are more requests than
+ * servers, the tree is built over the requests instead
+ */
+public class GeometricMatch {
+
+    private ArrayList<Node> sNodes;
+    private ArrayList<Node> rNodes;
+
+    //Number of rows and columns, n <= m
+    private int n;
+    private int m;
+
+    //Are the rows the server nodes? (only when there are more requests)
+    private boolean transposed;
+
+    private int[] rowX;
+    private int[] rowY;
+    private int[] colX;
+    private int[] colY;
+
+    //Column prices (always <= 0, and 0 for unmatched columns)
+    private double[] colPrice;
+
+    //Column assigned to each row and row assigned to each column, or -1
+    private int[] rowSol;
+    private int[] colSol;
+
+    //Columns, w/ weight -colPrice
+    private KdTree tree;
+
+    //Buffers for the search: distance and predecessor row of each column,
+    //the columns w/ final distances in order, each scanned row's best column
+    //and the offset added to its tree query
+    private double[] d;
+    private int[] pred;
+    private int[] settled;
+    private int[] rowBest;
+    private double[] rowOffset;
+    private IndexedMinHeap rowHeap;
+
+    //Tree queries made by the last run()
+    private long numQueries;
+
+    public GeometricMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	transposed = rNodes.size() > sNodes.size();
+	ArrayList<Node> rowNodes = transposed ? sNodes : rNodes;
+	ArrayList<Node> colNodes = transposed ? rNodes : sNodes;
+	n = rowNodes.size();
+	m = colNodes.size();
+	rowX = new int[n];
+	rowY = new int[n];
+	colX = new int[m];
+	colY = new int[m];
+	setCoordinates(rowNodes, colNodes);
+	colPrice = new double[m];
+	rowSol = new int[n];
+	colSol = new int[m];
+	tree = new KdTree(colX, colY);
+	d = new double[m];
+	pred = new int[m];
+	settled = new int[m];
+	rowBest = new int[n];
+	rowOffset = new double[n];
+	rowHeap = new IndexedMinHeap(n);
+    }
+
+    private void setCoordinates(ArrayList<Node> rowNodes, ArrayList<Node> colNodes) {
+	for(int i = 0; i < n; i++) {
+	    rowX[i] = rowNodes.get(i).getX();
+	    rowY[i] = rowNodes.get(i).getY();
+	}
+	for(int j = 0; j < m; j++) {
+	    colX[j] = colNodes.get(j).getX();
+	    colY[j] = colNodes.get(j).getY();
+	}
+    }
+
+    /**
+     * Runs the Algorithm again on new nodes, the same number of sNodes and
+     * rNodes as before.  The coordinates are overwritten in place and the
+     * tree is rebuilt over the same arrays, so only the returned matching is
+     * allocated
+     */
+    public ArrayList<MatchInfo> resolve(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	if(transposed) {
+	    setCoordinates(sNodes, rNodes);
+	} else {
+	    setCoordinates(rNodes, sNodes);
+	}
+	tree.rebuild();
+	return run();
+    }
+
+    /**
+     * Run the Algorithm, and return the optimal matching
+     *
+     * W/ more servers than requests (or the other way around), every node on
+     * the smaller side is matched
+     */
+    public ArrayList<MatchInfo> run() {
+	clearMatching();
+	//W/ all prices 0, each row can take its nearest column if it is free
+	int[] free = new int[n];
+	int numFree = 0;
+	for(int i = 0; i < n; i++) {
+	    int j = tree.nearest(rowX[i], rowY[i]);
+	    numQueries++;
+	    if(colSol[j] == -1) {
+		rowSol[i] = j;
+		colSol[j] = i;
+	    } else {
+		rowSol[i] = -1;
+		free[numFree] = i;
+		numFree++;
+	    }
+	}
+	for(int f = 0; f < numFree; f++) {
+	    augment(free[f]);
+	}
+	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(n);
+	for(int i = 0; i < n; i++) {
+	    int j = rowSol[i];
+	    double dist = cost(i, j);
+	    if(transposed) {
+		matches.add(new MatchInfo(sNodes.get(i), rNodes.get(j), dist));
+	    } else {
+		matches.add(new MatchInfo(sNodes.get(j), rNodes.get(i), dist));
+	    }
+	}
+	return matches;
+    }
+
+    /**
+     * Removes every pair and price, so the next addRow() starts a new
+     * matching from nothing
+     */
+    public void clearMatching() {
+	numQueries = 0;
+	for(int i = 0; i < n; i++) {
+	    rowSol[i] = -1;
+	}
+	for(int j = 0; j < m; j++) {
+	    colSol[j] = -1;
+	    colPrice[j] = 0;
+	    tree.update(j, 0, true);
+	}
+    }
+
+    /**
+     * Adds unmatched row i to the current matching (of the rows added so
+     * far, and optimal for them) along one shortest augmenting path, w/ the
+     * prices the last one left.  Returns the column which was free before and
+     * is matched now, i.e. the server node the Permutation algorithm gives
+     * to request i (if the rows are the request nodes), or -1 if every column
+     * is taken
+     *
+     * Rows already matched keep a column, and unmatched columns keep price 0,
+     * so the prices stay optimal for the rows added so far, and no earlier
+     * path needs finding again
+     */
+    public int addRow(int i) {
+	if(rowSol[i] != -1) {
+	    return -1;
+	}
+	for(int j = 0; j < m; j++) {
+	    if(colSol[j] == -1) {
+		return augment(i);
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Total cost of the matching found by run()
+     */
+    public double getTotalCost() {
+	double total = 0;
+	for(int i = 0; i < n; i++) {
+	    total += cost(i, rowSol[i]);
+	}
+	return total;
+    }
+
+    /**
+     * Price of each server node (column) in the optimal dual solution.  If
+     * there were more requests than servers, these are the request prices
+     */
+    public double[] getColPrices() {
+	return colPrice;
+    }
+
+    /**
+     * Number of weighted nearest neighbor queries made by the last run()
+     */
+    public long getNumQueries() {
+	return numQueries;
+    }
+
+    /**  -------------------------AUGMENTATION-------------------------  */
+
+    /**
+     * Gives freeRow a column along a shortest augmenting path, and returns
+     * the free column at its end
+     *
+     * Dijkstra over the columns: the heap holds each scanned row, keyed by
+     * rowOffset + the tree's value for its best column (distance - colPrice),
+     * which is the distance that column would get through this row.  The
+     * row on top either settles its best column, or, if that column was
+     * settled already, asks the tree again.  A settled free column ends the
+     * path.  A settled matched column scans its row, whose offset makes the
+     * matched pair's reduced cost (which is 0) come out right
+     */
+    private int augment(int freeRow) {
+	int numSettled = 0;
+	rowOffset[freeRow] = 0;
+	queryRow(freeRow);
+	int endOfPath = -1;
+	double min = 0;
+	while(endOfPath == -1) {
+	    int i = rowHeap.poll();
+	    int j = rowBest[i];
+	    if(!tree.isAlive(j)) {
+		queryRow(i);
+		continue;
+	    }
+	    double dist = rowOffset[i] + cost(i, j) - colPrice[j];
+	    d[j] = dist;
+	    pred[j] = i;
+	    tree.kill(j);
+	    settled[numSettled] = j;
+	    numSettled++;
+	    if(colSol[j] == -1) {
+		endOfPath = j;
+		min = dist;
+	    } else {
+		int i1 = colSol[j];
+		//Reduced cost of (i1,j) is 0, so i1 is at distance dist too
+		rowOffset[i1] = dist - cost(i1, j) + colPrice[j];
+		queryRow(i1);
+		queryRow(i);
+	    }
+	}
+	rowHeap.clear();
+	//Update the prices of the columns which are done, and put every
+	//settled column back in the tree w/ its new weight
+	for(int k = 0; k < numSettled; k++) {
+	    int j1 = settled[k];
+	    colPrice[j1] += d[j1] - min;
+	    tree.update(j1, -colPrice[j1], true);
+	}
+	//Flip the assignments along the path
+	int newCol = endOfPath;
+	int i;
+	do {
+	    i = pred[endOfPath];
+	    colSol[endOfPath] = i;
+	    int j1 = endOfPath;
+	    endOfPath = rowSol[i];
+	    rowSol[i] = j1;
+	} while(i != freeRow);
+	return newCol;
+    }
+
+    /**
+     * Finds row i's best live column and puts i on the heap w/ the distance
+     * that column would get
+     */
+    private void queryRow(int i) {
+	int j = tree.nearest(rowX[i], rowY[i]);
+	numQueries++;
+	if(j == -1) {
+	    return;
+	}
+	rowBest[i] = j;
+	rowHeap.insertOrDecrease(i, rowOffset[i] + tree.getQueryValue());
+    }
+
+    private double cost(int i, int j) {
+	return xyDistance(colX[j], rowX[i], colY[j], rowY[i]);
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates
+     */
+    private double xyDistance(int x1, int x2, int y1, int y2) {
+	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
+    }
+}
@@ -0,0 +1,344 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The online matching loop shared by Greedy, Random Greedy and the Greedy
+ * Threshold algorithms (NewAlgs): request nodes arrive in order, and each
+ * one takes one of the (one or two) closest unmatched server nodes
+ *
+ * Works on coordinate arrays instead of Node lists.  The unmatched server
+ * nodes are kept in live[0..numLive-1], and a matched one is swapped w/ the
+ * last live one instead of being removed from an ArrayList, so taking a
+ * node is O(1).  That changes the order of live[], so ties between equally
+ * close server nodes are broken by original index, which is what the old
+ * ArrayList versions did (their lists never changed order).  The distances
+ * are also computed the same way, so every run picks the same nodes as
+ * before
+ *
+ * Results go into the assignment and cost arrays (server index and distance
+ * for each request, -1 if it got none), which are allocated once, so a run
+ * allocates nothing.  getMatching() makes the MatchInfos the tests use
+ *
+ * The distances compared can also be read from a CostMatrix shared w/ other
+ * algorithms.  The ones recorded in cost are still worked out in double
+ *
+ * runOfflineGreedy() is the offline version: all request nodes are known up
+ * front, and the closest unmatched pair of all is matched each time
+ */
+public class GreedyKernel {
+
+    private ArrayList<Node> sNodes;
+    private ArrayList<Node> rNodes;
+
+    private int[] sX;
+    private int[] sY;
+    private int[] rX;
+    private int[] rY;
+
+    //Request nodes as rows, or null to use the coordinates
+    private CostMatrix costs;
+
+    //Original indices of the unmatched server nodes, and where each server
+    //node is in live[]
+    private int[] live;
+    private int[] slot;
+    private int numLive;
+
+    //Server node assigned to each request node and its distance
+    private int[] assignment;
+    private double[] cost;
+    private int numMatched;
+    //Request nodes in the order they were matched
+    private int[] order;
+
+    //Used by runOfflineGreedy(): each unmatched request node's closest live
+    //server node and its distance
+    private int[] closest;
+    private double[] closestDist;
+
+    //Closest and second closest live server nodes found by findClosestTwo(),
+    //and where they are in live[]
+    private int best;
+    private int second;
+    private int bestSlot;
+    private int secondSlot;
+    private double bestDist;
+    private double secondDist;
+
+    public GreedyKernel(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	sX = new int[sNodes.size()];
+	sY = new int[sNodes.size()];
+	for(int s = 0; s < sNodes.size(); s++) {
+	    sX[s] = sNodes.get(s).getX();
+	    sY[s] = sNodes.get(s).getY();
+	}
+	rX = new int[rNodes.size()];
+	rY = new int[rNodes.size()];
+	for(int r = 0; r < rNodes.size(); r++) {
+	    rX[r] = rNodes.get(r).getX();
+	    rY[r] = rNodes.get(r).getY();
+	}
+	live = new int[sNodes.size()];
+	slot = new int[sNodes.size()];
+	assignment = new int[rNodes.size()];
+	cost = new double[rNodes.size()];
+	order = new int[rNodes.size()];
+    }
+
+    /**
+     * Compares distances read from costs (request nodes as rows), which must
+     * already be filled in
+     */
+    public GreedyKernel(ArrayList<Node> sNodes, ArrayList<Node> rNodes, CostMatrix costs) {
+	this(sNodes, rNodes);
+	this.costs = costs;
+    }
+
+    /**  -------------------------ALGORITHMS-------------------------  */
+
+    /**
+     * Greedy: each request node takes the closest unmatched server node
+     *
+     * Returns the number of request nodes matched
+     */
+    public int runGreedy() {
+	reset();
+	for(int r = 0; r < rX.length && numLive > 0; r++) {
+	    findClosestTwo(r);
+	    take(r, bestSlot, bestDist);
+	}
+	return numMatched;
+    }
+
+    /**
+     * Random Greedy: each request node takes one of its two closest unmatched
+     * server nodes at random, or the last one if only one is left (and the
+     * request nodes after it get nothing)
+     */
+    public int runRandomGreedy(Random rand) {
+	reset();
+	for(int r = 0; r < rX.length && numLive > 0; r++) {
+	    findClosestTwo(r);
+	    if(numLive == 1) {
+		take(r, bestSlot, bestDist);
+		break;
+	    }
+	    if(rand.nextBoolean()) {
+		take(r, bestSlot, bestDist);
+	    } else {
+		take(r, secondSlot, secondDist);
+	    }
+	}
+	return numMatched;
+    }
+
+    /**
+     * Greedy Threshold (see NewAlgs): each request node takes its closest
+     * unmatched server node if that node's desirability score is above
+     * threshold, and the second closest otherwise.  W/ updateScores (GT2),
+     * the scores of the unmatched server nodes are updated after each match
+     * to leave out the request node just matched.  score is indexed by
+     * server node, and is changed in place
+     */
+    public int runThreshold(double[] score, double threshold, boolean updateScores) {
+	reset();
+	for(int r = 0; r < rX.length && numLive > 0; r++) {
+	    findClosestTwo(r);
+	    if(numLive == 1) {
+		take(r, bestSlot, bestDist);
+		break;
+	    }
+	    if(score[best] > threshold) {
+		take(r, bestSlot, bestDist);
+	    } else {
+		take(r, secondSlot, secondDist);
+	    }
+	    if(updateScores) {
+		//Each score is an average over numLive+1 request nodes, now numLive
+		for(int k = 0; k < numLive; k++) {
+		    int s = live[k];
+		    double sumDist = score[s]*(numLive+1);
+		    sumDist -= xyDistance(sX[s], rX[r], sY[s], rY[r]);
+		    score[s] = sumDist/numLive;
+		}
+	    }
+	}
+	return numMatched;
+    }
+
+    /**
+     * Offline Greedy: the closest pair of an unmatched request node and an
+     * unmatched server node is matched, until maxMatches pairs are matched
+     * or one side runs out.  Ties go to the lower server index, then the
+     * lower request index, the order the old list-based version scanned the
+     * pairs in
+     *
+     * Each unmatched request node keeps its closest live server node, and
+     * only the ones whose closest node was just taken look again.  That's
+     * O(n) memory instead of a list of every pair, and usually not much
+     * more than O(n*m) time (O(n*n*m) if every request wants the same server)
+     */
+    public int runOfflineGreedy(int maxMatches) {
+	reset();
+	if(closest == null) {
+	    closest = new int[rX.length];
+	    closestDist = new double[rX.length];
+	}
+	for(int r = 0; r < rX.length && numLive > 0; r++) {
+	    findClosest(r);
+	}
+	while(numMatched < maxMatches && numMatched < rX.length && numLive > 0) {
+	    int rMin = -1;
+	    for(int r = 0; r < rX.length; r++) {
+		if(assignment[r] != -1) {
+		    continue;
+		}
+		if(rMin == -1 || closestDist[r] < closestDist[rMin]
+		   || (closestDist[r] == closestDist[rMin] && closest[r] < closest[rMin])) {
+		    rMin = r;
+		}
+	    }
+	    int s = closest[rMin];
+	    take(rMin, slot[s], closestDist[rMin]);
+	    for(int r = 0; r < rX.length && numLive > 0; r++) {
+		if(assignment[r] == -1 && closest[r] == s) {
+		    findClosest(r);
+		}
+	    }
+	}
+	return numMatched;
+    }
+
+    /**  -------------------------RESULTS-------------------------  */
+
+    /**
+     * Index (into sNodes) of the server node each request node got in the
+     * last run, or -1
+     */
+    public int[] getAssignment() {
+	return assignment;
+    }
+
+    /**
+     * Distance from each request node to its server node in the last run
+     */
+    public double[] getCosts() {
+	return cost;
+    }
+
+    public int getNumMatched() {
+	return numMatched;
+    }
+
+    /**
+     * Request nodes of the last run in the order they were matched, in
+     * [0..getNumMatched()-1].  For the online runs that is just 0, 1, 2...
+     */
+    public int[] getMatchOrder() {
+	return order;
+    }
+
+    /**
+     * The last run's matches, in the order they were made.  Like the matching
+     * loops this replaced, each MatchInfo has the request node first
+     */
+    public ArrayList<MatchInfo> getMatching() {
+	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(numMatched);
+	for(int k = 0; k < numMatched; k++) {
+	    int r = order[k];
+	    matches.add(new MatchInfo(rNodes.get(r), sNodes.get(assignment[r]), cost[r]));
+	}
+	return matches;
+    }
+
+    /**
+     * Same as getMatching(), in matches[0..numMatched-1]
+     */
+    public void getMatching(MatchInfo[] matches) {
+	for(int k = 0; k < numMatched; k++) {
+	    int r = order[k];
+	    matches[k] = new MatchInfo(rNodes.get(r), sNodes.get(assignment[r]), cost[r]);
+	}
+    }
+
+    /**  -------------------------KERNEL-------------------------  */
+
+    private void reset() {
+	numLive = live.length;
+	for(int s = 0; s < numLive; s++) {
+	    live[s] = s;
+	    slot[s] = s;
+	}
+	for(int r = 0; r < assignment.length; r++) {
+	    assignment[r] = -1;
+	    cost[r] = 0;
+	}
+	numMatched = 0;
+    }
+
+    /**
+     * Finds request node r's closest and second closest live server nodes,
+     * ties going to the lower original index.  second is -1 if only one is
+     * live
+     */
+    private void findClosestTwo(int r) {
+	best = -1;
+	second = -1;
+	bestDist = Double.MAX_VALUE;
+	secondDist = Double.MAX_VALUE;
+	int x = rX[r];
+	int y = rY[r];
+	for(int k = 0; k < numLive; k++) {
+	    int s = live[k];
+	    double dist = costs == null ? xyDistance(x, sX[s], y, sY[s]) : costs.get(r, s);
+	    if(dist < bestDist || (dist == bestDist && s < best)) {
+		second = best;
+		secondSlot = bestSlot;
+		secondDist = bestDist;
+		best = s;
+		bestSlot = k;
+		bestDist = dist;
+	    } else if(dist < secondDist || (dist == secondDist && s < second)) {
+		second = s;
+		secondSlot = k;
+		secondDist = dist;
+	    }
+	}
+    }
+
+    /**
+     * Request node r's closest live server node, for runOfflineGreedy()
+     */
+    private void findClosest(int r) {
+	findClosestTwo(r);
+	closest[r] = best;
+	closestDist[r] = bestDist;
+    }
+
+    /**
+     * Matches request node r to the server node at live[k], which is swapped
+     * w/ the last live one
+     */
+    private void take(int r, int k, double dist) {
+	int s = live[k];
+	assignment[r] = s;
+	cost[r] = costs == null ? dist : xyDistance(rX[r], sX[s], rY[r], sY[s]);
+	order[numMatched] = r;
+	numMatched++;
+	numLive--;
+	live[k] = live[numLive];
+	slot[live[k]] = k;
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates.  Same
+     * value as Math.pow(dx, 2) + Math.pow(dy, 2) would give
+     */
+    private double xyDistance(int x1, int x2, int y1, int y2) {
+	double dx = x2 - x1;
+	double dy = y2 - y1;
+	return Math.sqrt(dx*dx + dy*dy);
+    }
+}
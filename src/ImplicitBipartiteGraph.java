@@ -0,0 +1,288 @@
+import java.util.ArrayList;
+
+/**
+ * A ResidualGraph for the complete bipartite network between xNodes and
+ * yNodes which never stores its xNode->yNode edges
+ *
+ * The cost of an edge is just the distance between its two nodes, so it is
+ * computed from the coordinate arrays whenever it is asked for.  The only
+ * things stored per edge are the matched ones, as mateOfX/mateOfY, which takes
+ * the memory for n xNodes and n yNodes from O(n^2) down to O(n)
+ *
+ * Arcs are still numbered, so Dijkstra and MaxFlowBP can walk them exactly as
+ * they walk a ResidualGraph's CSR arrays:
+ *
+ *   source          - arc i goes to xNode i
+ *   xNode i         - numY arcs to each yNode, then one backwards arc to source
+ *   yNode j         - a backwards arc to its mate (if any), then one to sink
+ *   sink            - backwards arc j goes to yNode j
+ *
+ * The backwards arc of a yNode points at whichever xNode it's matched to, so
+ * augmenting paths have to be pushed from the sink end back to the source, as
+ * MaxFlowBP does.  Arc numbers grow as numX*numY, which limits this to about
+ * 45000 nodes on each side
+ *
+ * The costs can also be read from a CostMatrix (e.g. a MappedCostMatrix
+ * shared w/ other algorithms) instead of worked out from the coordinates
+ */
+public class ImplicitBipartiteGraph extends ResidualGraph {
+
+    //Coordinates of each xNode and yNode
+    private int[] xNodeX;
+    private int[] xNodeY;
+    private int[] yNodeX;
+    private int[] yNodeY;
+
+    //Index (counted from 0) of the yNode each xNode is matched to, and vice versa, or -1
+    private int[] mateOfX;
+    private int[] mateOfY;
+
+    //Costs w/ the yNodes as rows and xNodes as columns, or null to use the coordinates
+    private CostMatrix costs;
+
+    //First arc of the xNode, yNode and sink blocks
+    private int xArcBase;
+    private int yArcBase;
+    private int sinkArcBase;
+
+    public ImplicitBipartiteGraph(ArrayList<Node> xNodes, ArrayList<Node> yNodes) {
+	super(xNodes.size(), yNodes.size());
+	xNodeX = new int[numX];
+	xNodeY = new int[numX];
+	yNodeX = new int[numY];
+	yNodeY = new int[numY];
+	mateOfX = new int[numX];
+	mateOfY = new int[numY];
+	xArcBase = numX;
+	yArcBase = xArcBase + numX*(numY+1);
+	sinkArcBase = yArcBase + 2*numY;
+	setNodes(xNodes, yNodes);
+    }
+
+    /**
+     * Reads the costs from a cost matrix w/ the yNodes as rows and the xNodes
+     * as columns (so the request nodes as rows, if the xNodes are the server
+     * nodes), which must already be filled in
+     */
+    public ImplicitBipartiteGraph(ArrayList<Node> xNodes, ArrayList<Node> yNodes, CostMatrix costs) {
+	this(xNodes, yNodes);
+	//Set after the constructor above, so its setNodes() doesn't refill it
+	this.costs = costs;
+    }
+
+    /**
+     * Only the coordinate arrays need changing, see ResidualGraph.setNodes()
+     */
+    @Override
+    public void setNodes(ArrayList<Node> xNodes, ArrayList<Node> yNodes) {
+	for(int i = 0; i < numX; i++) {
+	    Node x = xNodes.get(i);
+	    nodes[xIndex(i)] = x;
+	    xNodeX[i] = x.getX();
+	    xNodeY[i] = x.getY();
+	}
+	for(int j = 0; j < numY; j++) {
+	    Node y = yNodes.get(j);
+	    nodes[yIndex(j)] = y;
+	    yNodeX[j] = y.getX();
+	    yNodeY[j] = y.getY();
+	}
+	if(costs != null) {
+	    costs.setNodes(xNodes, yNodes);
+	}
+	reset();
+    }
+
+    /**
+     * Distance between xNode i and yNode j (rounded, in integer-cost mode)
+     */
+    public double xyCost(int i, int j) {
+	if(costs != null) {
+	    return scaleCost(costs.get(j, i));
+	}
+	return scaleCost(xyDistance(xNodeX[i], yNodeX[j], xNodeY[i], yNodeY[j]));
+    }
+
+    /**  -------------------------ARCS-------------------------  */
+
+    @Override
+    public int firstArc(int v) {
+	if(v == SOURCE) {
+	    return 0;
+	} else if(isXNode(v)) {
+	    return xArcBase + (v - xIndex(0))*(numY+1);
+	} else if(isYNode(v)) {
+	    return yArcBase + 2*(v - yIndex(0));
+	} else {
+	    return sinkArcBase;
+	}
+    }
+
+    @Override
+    public int endArc(int v) {
+	if(v == SOURCE) {
+	    return numX;
+	} else if(isXNode(v)) {
+	    return firstArc(v) + numY + 1;
+	} else if(isYNode(v)) {
+	    return firstArc(v) + 2;
+	} else {
+	    return sinkArcBase + numY;
+	}
+    }
+
+    @Override
+    public int getHead(int a) {
+	if(a < xArcBase) {
+	    return xIndex(a);
+	} else if(a < yArcBase) {
+	    int k = (a - xArcBase) % (numY+1);
+	    return k == numY ? SOURCE : yIndex(k);
+	} else if(a < sinkArcBase) {
+	    int j = (a - yArcBase)/2;
+	    if((a - yArcBase) % 2 == 1) {
+		return getSink();
+	    }
+	    return mateOfY[j] == -1 ? -1 : xIndex(mateOfY[j]);
+	} else {
+	    return yIndex(a - sinkArcBase);
+	}
+    }
+
+    @Override
+    public int getTail(int a) {
+	if(a < xArcBase) {
+	    return SOURCE;
+	} else if(a < yArcBase) {
+	    return xIndex((a - xArcBase)/(numY+1));
+	} else if(a < sinkArcBase) {
+	    return yIndex((a - yArcBase)/2);
+	} else {
+	    return getSink();
+	}
+    }
+
+    @Override
+    public double getCost(int a) {
+	if(a < xArcBase || a >= sinkArcBase) {
+	    return 0;
+	} else if(a < yArcBase) {
+	    int i = (a - xArcBase)/(numY+1);
+	    int k = (a - xArcBase) % (numY+1);
+	    return k == numY ? 0 : xyCost(i, k);
+	} else {
+	    int j = (a - yArcBase)/2;
+	    if((a - yArcBase) % 2 == 1 || mateOfY[j] == -1) {
+		return 0;
+	    }
+	    return -xyCost(mateOfY[j], j);
+	}
+    }
+
+    @Override
+    public int getReverse(int a) {
+	if(a < xArcBase) {
+	    return xArcBase + a*(numY+1) + numY;
+	} else if(a < yArcBase) {
+	    int i = (a - xArcBase)/(numY+1);
+	    int k = (a - xArcBase) % (numY+1);
+	    return k == numY ? i : yArcBase + 2*k;
+	} else if(a < sinkArcBase) {
+	    int j = (a - yArcBase)/2;
+	    if((a - yArcBase) % 2 == 1) {
+		return sinkArcBase + j;
+	    }
+	    return mateOfY[j] == -1 ? -1 : xArcBase + mateOfY[j]*(numY+1) + j;
+	} else {
+	    return yArcBase + 2*(a - sinkArcBase) + 1;
+	}
+    }
+
+    @Override
+    public boolean isBackwards(int a) {
+	if(a < xArcBase) {
+	    return false;
+	} else if(a < yArcBase) {
+	    return (a - xArcBase) % (numY+1) == numY;
+	} else if(a < sinkArcBase) {
+	    return (a - yArcBase) % 2 == 0;
+	} else {
+	    return true;
+	}
+    }
+
+    /**
+     * Source and sink arcs carry flow exactly when their xNode/yNode is
+     * matched, and an xNode->yNode arc carries flow when the two are mates
+     */
+    @Override
+    public boolean hasResidual(int a) {
+	if(a < xArcBase) {
+	    return mateOfX[a] == -1;
+	} else if(a < yArcBase) {
+	    int i = (a - xArcBase)/(numY+1);
+	    int k = (a - xArcBase) % (numY+1);
+	    return k == numY ? mateOfX[i] != -1 : mateOfX[i] != k;
+	} else if(a < sinkArcBase) {
+	    int j = (a - yArcBase)/2;
+	    boolean toSink = (a - yArcBase) % 2 == 1;
+	    return toSink ? mateOfY[j] == -1 : mateOfY[j] != -1;
+	} else {
+	    return mateOfY[a - sinkArcBase] != -1;
+	}
+    }
+
+    /**
+     * Only pushes along xNode->yNode arcs and yNode->mate arcs change
+     * anything; whether source and sink arcs carry flow follows from the mates
+     */
+    @Override
+    public void push(int tail, int a) {
+	if(a >= xArcBase && a < yArcBase) {
+	    int i = (a - xArcBase)/(numY+1);
+	    int k = (a - xArcBase) % (numY+1);
+	    if(k < numY) {
+		mateOfX[i] = k;
+		mateOfY[k] = i;
+	    }
+	} else if(a >= yArcBase && a < sinkArcBase && (a - yArcBase) % 2 == 0) {
+	    int j = (a - yArcBase)/2;
+	    int i = mateOfY[j];
+	    mateOfY[j] = -1;
+	    //i may already have been given its new mate further along the path
+	    if(mateOfX[i] == j) {
+		mateOfX[i] = -1;
+	    }
+	}
+    }
+
+    @Override
+    public int getMate(int x) {
+	int j = mateOfX[x - xIndex(0)];
+	return j == -1 ? -1 : yIndex(j);
+    }
+
+    /**
+     * Worked out from the coordinates even w/ a cost matrix, which may only
+     * hold floats
+     */
+    @Override
+    public double getEdgeCost(int x, int y) {
+	int i = x - xIndex(0);
+	int j = y - yIndex(0);
+	return scaleCost(xyDistance(xNodeX[i], yNodeX[j], xNodeY[i], yNodeY[j]));
+    }
+
+    @Override
+    public void reset() {
+	for(int i = 0; i < numX; i++) {
+	    mateOfX[i] = -1;
+	}
+	for(int j = 0; j < numY; j++) {
+	    mateOfY[j] = -1;
+	}
+	for(int v = 0; v < numNodes; v++) {
+	    price[v] = 0;
+	}
+    }
+}
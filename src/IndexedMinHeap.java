@@ -0,0 +1,145 @@
+/**
+ * A binary min-heap over the ints 0..capacity-1, each with a double key
+ *
+ * Unlike java.util.PriorityQueue, it knows where every item sits in the heap,
+ * so an item's key can be lowered in O(log n) (decreaseKey) instead of
+ * removing and re-adding it.  Used by Dijkstra to find the closest unvisited
+ * node without scanning all of them
+ */
+public class IndexedMinHeap {
+
+    //heap[k] is the item at position k, pos[item] is its position (-1 if not in the heap)
+    private int[] heap;
+    private int[] pos;
+    private double[] key;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+	heap = new int[capacity];
+	pos = new int[capacity];
+	key = new double[capacity];
+	for(int i = 0; i < capacity; i++) {
+	    pos[i] = -1;
+	}
+	size = 0;
+    }
+
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    public int size() {
+	return size;
+    }
+
+    public boolean contains(int item) {
+	return pos[item] != -1;
+    }
+
+    public double getKey(int item) {
+	return key[item];
+    }
+
+    /**
+     * Item on top of the heap
+     */
+    public int peek() {
+	return heap[0];
+    }
+
+    /**
+     * Key of the item on top of the heap
+     */
+    public double peekKey() {
+	return key[heap[0]];
+    }
+
+    /**
+     * Adds item w/ the given key, or lowers its key if it is already in the
+     * heap with a larger one
+     */
+    public void insertOrDecrease(int item, double k) {
+	if(pos[item] == -1) {
+	    heap[size] = item;
+	    pos[item] = size;
+	    key[item] = k;
+	    size++;
+	    siftUp(pos[item]);
+	} else if(k < key[item]) {
+	    decreaseKey(item, k);
+	}
+    }
+
+    public void decreaseKey(int item, double k) {
+	key[item] = k;
+	siftUp(pos[item]);
+    }
+
+    public void increaseKey(int item, double k) {
+	key[item] = k;
+	siftDown(pos[item]);
+    }
+
+    /**
+     * Removes and returns the item w/ the smallest key
+     */
+    public int poll() {
+	int top = heap[0];
+	size--;
+	pos[top] = -1;
+	if(size > 0) {
+	    heap[0] = heap[size];
+	    pos[heap[0]] = 0;
+	    siftDown(0);
+	}
+	return top;
+    }
+
+    /**
+     * Empties the heap, so it can be reused for another run
+     */
+    public void clear() {
+	for(int k = 0; k < size; k++) {
+	    pos[heap[k]] = -1;
+	}
+	size = 0;
+    }
+
+    private void siftUp(int k) {
+	int item = heap[k];
+	double itemKey = key[item];
+	while(k > 0) {
+	    int parent = (k - 1)/2;
+	    if(key[heap[parent]] <= itemKey) {
+		break;
+	    }
+	    heap[k] = heap[parent];
+	    pos[heap[k]] = k;
+	    k = parent;
+	}
+	heap[k] = item;
+	pos[item] = k;
+    }
+
+    private void siftDown(int k) {
+	int item = heap[k];
+	double itemKey = key[item];
+	while(true) {
+	    int child = 2*k + 1;
+	    if(child >= size) {
+		break;
+	    }
+	    if(child + 1 < size && key[heap[child+1]] < key[heap[child]]) {
+		child++;
+	    }
+	    if(key[heap[child]] >= itemKey) {
+		break;
+	    }
+	    heap[k] = heap[child];
+	    pos[heap[k]] = k;
+	    k = child;
+	}
+	heap[k] = item;
+	pos[item] = k;
+    }
+}
@@ -0,0 +1,444 @@
+import java.util.ArrayList;
+
+/**
+ * The Jonker-Volgenant (LAPJV) algorithm for the dense assignment problem
+ *
+ * Finds the same minimum-cost perfect matching as MaxFlowBP, but works on a
+ * flat array of costs instead of a ResidualGraph, so n in the
+ * thousands runs in seconds.  See "A Shortest Augmenting Path Algorithm for
+ * Dense and Sparse Linear Assignment Problems", R. Jonker and A. Volgenant
+ * (1987) for the details
+ *
+ * High-level description: find a cheap starting assignment and column prices
+ * w/ column reduction and augmenting row reduction, then give each row still
+ * left unassigned a column along a shortest augmenting path (a Dijkstra over
+ * the columns, w/ reduced costs cost[i][j] - colPrice[j])
+ *
+ * Rows are the request nodes, columns are the server nodes.  The two don't
+ * have to be the same size: w/ n rows and m columns (n <= m) every row gets
+ * a column, in O(n*n*m) time, w/o padding the matrix out to m*m.  If there
+ * are more requests than servers, the matrix is transposed, so the rows are
+ * always the smaller side
+ */
+public class JonkerVolgenant {
+
+    //Steps augmentingRowReduction() may take per free row it has reached
+    private final int ROW_REDUCTION_STEPS = 16;
+
+    private ArrayList<Node> sNodes;
+    private ArrayList<Node> rNodes;
+
+    //Number of rows and columns, n <= m
+    private int n;
+    private int m;
+
+    //Are the rows the server nodes? (only when there are more requests)
+    private boolean transposed;
+
+    //Distances from each request to each server, see cost(i, j)
+    private CostMatrix costs;
+
+    //Dual prices: rowPrice[i] + colPrice[j] <= cost of (i,j), w/ equality for matched pairs
+    private double[] rowPrice;
+    private double[] colPrice;
+
+    //Column assigned to each row and row assigned to each column, or -1
+    private int[] rowSol;
+    private int[] colSol;
+
+    //Buffers for run(), columnReduction() and augment(): the free rows, the
+    //number of columns each row is the cheapest for, and the distance,
+    //predecessor row and position in colList of each column
+    private int[] free;
+    private int[] matches;
+    private double[] d;
+    private int[] pred;
+    private int[] colList;
+
+    public JonkerVolgenant(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this(sNodes, rNodes, false);
+    }
+
+    /**
+     * W/ useFloat, the cost matrix is stored as floats, in half the memory.
+     * The matching is found w/ the float costs, but its distances (in the
+     * MatchInfos and getTotalCost()) are still worked out in double
+     */
+    public JonkerVolgenant(ArrayList<Node> sNodes, ArrayList<Node> rNodes, boolean useFloat) {
+	this(sNodes, rNodes, new CostMatrix(sNodes, rNodes, useFloat));
+    }
+
+    /**
+     * Uses an already built cost matrix (request nodes as rows), which can be
+     * shared w/ other algorithms as it is only read
+     */
+    public JonkerVolgenant(ArrayList<Node> sNodes, ArrayList<Node> rNodes, CostMatrix costs) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	this.costs = costs;
+	transposed = rNodes.size() > sNodes.size();
+	n = transposed ? sNodes.size() : rNodes.size();
+	m = transposed ? rNodes.size() : sNodes.size();
+	rowPrice = new double[n];
+	colPrice = new double[m];
+	rowSol = new int[n];
+	colSol = new int[m];
+	free = new int[n];
+	matches = new int[n];
+	d = new double[m];
+	pred = new int[m];
+	colList = new int[m];
+    }
+
+    /**
+     * Runs the Algorithm again on new nodes, the same number of sNodes and
+     * rNodes as before.  The cost matrix is overwritten in place and every
+     * other array is reused, so only the returned matching is allocated
+     */
+    public ArrayList<MatchInfo> resolve(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	costs.setNodes(sNodes, rNodes);
+	return run();
+    }
+
+    /**
+     * Run the Algorithm, and return the optimal matching
+     *
+     * W/ more servers than requests (or the other way around), every node on
+     * the smaller side is matched
+     */
+    public ArrayList<MatchInfo> run() {
+	for(int i = 0; i < n; i++) {
+	    rowSol[i] = -1;
+	}
+	for(int j = 0; j < m; j++) {
+	    colSol[j] = -1;
+	    colPrice[j] = 0;
+	}
+	int numFree;
+	if(n == m) {
+	    numFree = columnReduction(free);
+	    for(int loop = 0; loop < 2; loop++) {
+		numFree = augmentingRowReduction(free, numFree);
+	    }
+	} else {
+	    numFree = rowGreedy(free);
+	}
+	augment(free, numFree);
+	for(int i = 0; i < n; i++) {
+	    rowPrice[i] = cost(i, rowSol[i]) - colPrice[rowSol[i]];
+	}
+	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(n);
+	for(int i = 0; i < n; i++) {
+	    int j = rowSol[i];
+	    if(transposed) {
+		matches.add(new MatchInfo(sNodes.get(i), rNodes.get(j), distance(i, j)));
+	    } else {
+		matches.add(new MatchInfo(sNodes.get(j), rNodes.get(i), distance(i, j)));
+	    }
+	}
+	return matches;
+    }
+
+    /**
+     * Price of each request node (row) in the optimal dual solution.  If
+     * there were more requests than servers, these are the server prices
+     */
+    public double[] getRowPrices() {
+	return rowPrice;
+    }
+
+    /**
+     * Price of each server node (column) in the optimal dual solution.  If
+     * there were more requests than servers, these are the request prices.
+     * Unmatched columns always have price 0
+     */
+    public double[] getColPrices() {
+	return colPrice;
+    }
+
+    /**
+     * Total cost of the matching found by run(), in double precision even if
+     * the cost matrix is float
+     */
+    public double getTotalCost() {
+	double total = 0;
+	for(int i = 0; i < n; i++) {
+	    total += distance(i, rowSol[i]);
+	}
+	return total;
+    }
+
+    /**  -------------------------INITIALIZATION-------------------------  */
+
+    /**
+     * For n < m: each row takes its cheapest column if no row has it yet.
+     * Column prices stay 0, which is what the optimal dual needs for the
+     * columns left unmatched (column reduction would make them positive), and
+     * every row's price is its minimum cost, so the prices are feasible
+     *
+     * Fills free w/ the unassigned rows and returns how many there are
+     */
+    private int rowGreedy(int[] free) {
+	int numFree = 0;
+	for(int i = 0; i < n; i++) {
+	    int jMin = 0;
+	    for(int j = 1; j < m; j++) {
+		if(cost(i, j) < cost(i, jMin)) {
+		    jMin = j;
+		}
+	    }
+	    if(colSol[jMin] == -1) {
+		rowSol[i] = jMin;
+		colSol[jMin] = i;
+	    } else {
+		free[numFree] = i;
+		numFree++;
+	    }
+	}
+	return numFree;
+    }
+
+    /**
+     * Square case only.  Sets each column's price to its minimum cost, and assigns it to the
+     * row w/ that cost if that row isn't taken yet.  Then lowers the price of
+     * each column assigned this way by as much as its row could get from any
+     * other column (reduction transfer)
+     *
+     * Fills free w/ the unassigned rows and returns how many there are
+     */
+    private int columnReduction(int[] free) {
+	for(int i = 0; i < n; i++) {
+	    matches[i] = 0;
+	}
+	for(int j = n-1; j >= 0; j--) {
+	    int iMin = 0;
+	    double min = cost(0, j);
+	    for(int i = 1; i < n; i++) {
+		if(cost(i, j) < min) {
+		    min = cost(i, j);
+		    iMin = i;
+		}
+	    }
+	    colPrice[j] = min;
+	    matches[iMin]++;
+	    if(matches[iMin] == 1) {
+		rowSol[iMin] = j;
+		colSol[j] = iMin;
+	    }
+	}
+	int numFree = 0;
+	for(int i = 0; i < n; i++) {
+	    if(matches[i] == 0) {
+		free[numFree] = i;
+		numFree++;
+	    } else if(matches[i] == 1) {
+		int j1 = rowSol[i];
+		double min = Double.MAX_VALUE;
+		for(int j = 0; j < n; j++) {
+		    if(j != j1 && cost(i, j) - colPrice[j] < min) {
+			min = cost(i, j) - colPrice[j];
+		    }
+		}
+		if(min < Double.MAX_VALUE) {
+		    colPrice[j1] -= min;
+		}
+	    }
+	}
+	return numFree;
+    }
+
+    /**
+     * Square case only.  Each free row takes the column w/ its smallest
+     * reduced cost, lowering
+     * that column's price as far as its second-smallest allows.  The row
+     * that held the column (if any) becomes free; it is tried again at once
+     * if the price went down, and left for the next pass otherwise
+     *
+     * Returns how many rows are left in free
+     */
+    private int augmentingRowReduction(int[] free, int numFree) {
+	int prevNumFree = numFree;
+	numFree = 0;
+	int k = 0;
+	int steps = 0;
+	while(k < prevNumFree) {
+	    int i = free[k];
+	    k++;
+	    //Smallest and second-smallest reduced cost in row i
+	    double uMin = cost(i, 0) - colPrice[0];
+	    double uSubMin = Double.MAX_VALUE;
+	    int j1 = 0;
+	    int j2 = 0;
+	    for(int j = 1; j < n; j++) {
+		double h = cost(i, j) - colPrice[j];
+		if(h < uSubMin) {
+		    if(h >= uMin) {
+			uSubMin = h;
+			j2 = j;
+		    } else {
+			uSubMin = uMin;
+			uMin = h;
+			j2 = j1;
+			j1 = j;
+		    }
+		}
+	    }
+	    int i0 = colSol[j1];
+	    if(steps >= k*ROW_REDUCTION_STEPS) {
+		//W/ real-valued costs, two rows can trade a column back and forth
+		//by tiny price drops for a very long time.  So once a pass runs
+		//out of steps, just take the column and leave its old row free
+		//for augment()
+		if(i0 != -1) {
+		    rowSol[i0] = -1;
+		    free[numFree] = i0;
+		    numFree++;
+		}
+	    } else {
+		if(uMin < uSubMin) {
+		    colPrice[j1] -= uSubMin - uMin;
+		} else if(i0 != -1) {
+		    //No price change possible, so take the second column instead
+		    j1 = j2;
+		    i0 = colSol[j2];
+		}
+		if(i0 != -1) {
+		    rowSol[i0] = -1;
+		    if(uMin < uSubMin) {
+			k--;
+			free[k] = i0;
+		    } else {
+			free[numFree] = i0;
+			numFree++;
+		    }
+		}
+	    }
+	    steps++;
+	    rowSol[i] = j1;
+	    colSol[j1] = i;
+	}
+	return numFree;
+    }
+
+    /**  -------------------------AUGMENTATION-------------------------  */
+
+    /**
+     * Assigns each of the remaining free rows along a shortest augmenting
+     * path
+     *
+     * The columns are kept in colList in three groups: colList[0..low-1] are
+     * done (their distance is final), colList[low..up-1] are at the current
+     * minimum distance and waiting to be scanned, and the rest are still
+     * being relaxed
+     */
+    private void augment(int[] free, int numFree) {
+	for(int f = 0; f < numFree; f++) {
+	    int freeRow = free[f];
+	    for(int j = 0; j < m; j++) {
+		d[j] = cost(freeRow, j) - colPrice[j];
+		pred[j] = freeRow;
+		colList[j] = j;
+	    }
+	    int low = 0;
+	    int up = 0;
+	    int last = 0;
+	    int endOfPath = -1;
+	    double min = 0;
+	    while(endOfPath == -1) {
+		if(up == low) {
+		    //Collect the columns w/ the next smallest distance
+		    last = low - 1;
+		    min = d[colList[up]];
+		    up++;
+		    for(int k = up; k < m; k++) {
+			int j = colList[k];
+			double h = d[j];
+			if(h <= min) {
+			    if(h < min) {
+				up = low;
+				min = h;
+			    }
+			    colList[k] = colList[up];
+			    colList[up] = j;
+			    up++;
+			}
+		    }
+		    for(int k = low; k < up; k++) {
+			if(colSol[colList[k]] == -1) {
+			    endOfPath = colList[k];
+			    break;
+			}
+		    }
+		}
+		if(endOfPath == -1) {
+		    //Scan the row assigned to the next column at distance min
+		    int j1 = colList[low];
+		    low++;
+		    int i = colSol[j1];
+		    double u1 = cost(i, j1) - colPrice[j1] - min;
+		    for(int k = up; k < m; k++) {
+			int j = colList[k];
+			double v2 = cost(i, j) - colPrice[j] - u1;
+			if(v2 < d[j]) {
+			    pred[j] = i;
+			    if(v2 == min) {
+				if(colSol[j] == -1) {
+				    endOfPath = j;
+				    break;
+				}
+				colList[k] = colList[up];
+				colList[up] = j;
+				up++;
+			    }
+			    d[j] = v2;
+			}
+		    }
+		}
+	    }
+	    //Update the prices of the columns which are done
+	    for(int k = 0; k <= last; k++) {
+		int j1 = colList[k];
+		colPrice[j1] += d[j1] - min;
+	    }
+	    //Flip the assignments along the path
+	    int i;
+	    do {
+		i = pred[endOfPath];
+		colSol[endOfPath] = i;
+		int j1 = endOfPath;
+		endOfPath = rowSol[i];
+		rowSol[i] = j1;
+	    } while(i != freeRow);
+	}
+    }
+
+    /**  -------------------------COSTS-------------------------  */
+
+    /**
+     * Cost of row i and column j, as stored in the cost matrix
+     */
+    private double cost(int i, int j) {
+	if(transposed) {
+	    return costs.get(j, i);
+	}
+	return costs.get(i, j);
+    }
+
+    /**
+     * Distance between the nodes of row i and column j, in double
+     */
+    private double distance(int i, int j) {
+	Node s = transposed ? sNodes.get(i) : sNodes.get(j);
+	Node r = transposed ? rNodes.get(j) : rNodes.get(i);
+	return xyDistance(s.getX(), r.getX(), s.getY(), r.getY());
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates
+     */
+    private double xyDistance(int x1, int x2, int y1, int y2) {
+	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
+    }
+}
@@ -0,0 +1,422 @@
+import java.util.ArrayList;
+
+/**
+ * Exact minimum-cost matching which only ever stores O(n*k) pairs: each
+ * request node is given its k nearest server nodes as candidates (found w/ a
+ * KdTree), the matching is solved on those pairs alone, and the result is
+ * then certified optimal for the complete graph
+ *
+ * The solver is JonkerVolgenant's shortest augmenting path over the
+ * candidate lists (stored CSR style, like ResidualGraph), w/ Dijkstra's
+ * columns in an IndexedMinHeap since most columns are never reached.  Like
+ * JonkerVolgenant it keeps column prices <= 0 (0 for unmatched columns) and
+ * every candidate pair's reduced cost, cost - colPrice - rowPrice, >= 0
+ *
+ * Certification: the matching is optimal for every pair if no left out pair
+ * has a negative reduced cost either.  For row i that means
+ *
+ *   min over all columns j of (distance(i,j) - colPrice[j]) >= rowPrice[i]
+ *
+ * and the left side is just a weighted nearest neighbor query on a KdTree of
+ * the columns w/ weights -colPrice, so the check costs O(n log m) and never
+ * looks at all n*m pairs.  Any pairs that fail it are added as candidates and
+ * the matching is solved again.  If some row can't be given a column at all
+ * w/ its candidates, k is doubled.  Either way the final matching is exact
+ *
+ * Like JonkerVolgenant the rows are the smaller side, so if there are more
+ * requests than servers, the servers are given their k nearest requests
+ */
+public class KNearestMatch {
+
+    //Reduced costs down to -TOLERANCE (relative to the row's price) are
+    //rounding, not a better pair
+    private final double TOLERANCE = 1e-9;
+
+    private ArrayList<Node> sNodes;
+    private ArrayList<Node> rNodes;
+
+    //Number of rows and columns, n <= m
+    private int n;
+    private int m;
+
+    //Are the rows the server nodes? (only when there are more requests)
+    private boolean transposed;
+
+    private int[] rowX;
+    private int[] rowY;
+    private int[] colX;
+    private int[] colY;
+
+    //Number of nearest columns each row gets as candidates
+    private int k;
+
+    //Candidate pairs beyond the k nearest, added by certify()
+    private int[] extraRow;
+    private int[] extraCol;
+    private int numExtra;
+
+    //Candidate columns of row i are candCol[candStart[i]..candStart[i+1]-1]
+    private int[] candStart;
+    private int[] candCol;
+    private double[] candCost;
+
+    //Columns, w/ weight -colPrice when certifying
+    private KdTree tree;
+
+    private double[] colPrice;
+    private int[] rowSol;
+    private int[] colSol;
+    //Cost of each row's matched pair
+    private double[] rowCost;
+
+    //Buffers for augment(): distance and predecessor row of each column (d is
+    //Double.MAX_VALUE for columns not reached), and the columns reached.
+    //certify() borrows reached[] too
+    private double[] d;
+    private int[] pred;
+    private boolean[] settled;
+    private int[] reached;
+    private int numReached;
+    private IndexedMinHeap colHeap;
+
+    //Stats for the last run()
+    private int numRounds;
+    private int numViolations;
+
+    public KNearestMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes, int k) {
+	this.sNodes = sNodes;
+	this.rNodes = rNodes;
+	transposed = rNodes.size() > sNodes.size();
+	ArrayList<Node> rowNodes = transposed ? sNodes : rNodes;
+	ArrayList<Node> colNodes = transposed ? rNodes : sNodes;
+	n = rowNodes.size();
+	m = colNodes.size();
+	this.k = Math.max(1, Math.min(k, m));
+	rowX = new int[n];
+	rowY = new int[n];
+	for(int i = 0; i < n; i++) {
+	    rowX[i] = rowNodes.get(i).getX();
+	    rowY[i] = rowNodes.get(i).getY();
+	}
+	colX = new int[m];
+	colY = new int[m];
+	for(int j = 0; j < m; j++) {
+	    colX[j] = colNodes.get(j).getX();
+	    colY[j] = colNodes.get(j).getY();
+	}
+	tree = new KdTree(colX, colY);
+	extraRow = new int[16];
+	extraCol = new int[16];
+	candStart = new int[n+1];
+	colPrice = new double[m];
+	rowSol = new int[n];
+	colSol = new int[m];
+	rowCost = new double[n];
+	d = new double[m];
+	pred = new int[m];
+	settled = new boolean[m];
+	reached = new int[m];
+	colHeap = new IndexedMinHeap(m);
+    }
+
+    /**
+     * Run the Algorithm, and return the optimal matching
+     *
+     * W/ more servers than requests (or the other way around), every node on
+     * the smaller side is matched
+     */
+    public ArrayList<MatchInfo> run() {
+	numRounds = 0;
+	numViolations = 0;
+	numExtra = 0;
+	buildCandidates();
+	while(true) {
+	    numRounds++;
+	    if(!solve()) {
+		//Some row ran out of candidates
+		k = Math.min(2*k, m);
+		buildCandidates();
+		continue;
+	    }
+	    int violations = certify();
+	    if(violations == 0) {
+		break;
+	    }
+	    numViolations += violations;
+	    buildCandidates();
+	}
+	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(n);
+	for(int i = 0; i < n; i++) {
+	    int j = rowSol[i];
+	    if(transposed) {
+		matches.add(new MatchInfo(sNodes.get(i), rNodes.get(j), rowCost[i]));
+	    } else {
+		matches.add(new MatchInfo(sNodes.get(j), rNodes.get(i), rowCost[i]));
+	    }
+	}
+	return matches;
+    }
+
+    /**
+     * Total cost of the matching found by run()
+     */
+    public double getTotalCost() {
+	double total = 0;
+	for(int i = 0; i < n; i++) {
+	    total += rowCost[i];
+	}
+	return total;
+    }
+
+    /**
+     * Number of times the last run() solved the matching
+     */
+    public int getNumRounds() {
+	return numRounds;
+    }
+
+    /**
+     * Left out pairs the last run() found w/ negative reduced costs
+     */
+    public int getNumViolations() {
+	return numViolations;
+    }
+
+    /**
+     * Candidate pairs the last solve used
+     */
+    public int getNumCandidates() {
+	return candStart[n];
+    }
+
+    /**
+     * k the last run() ended w/ (doubled each time a row ran out)
+     */
+    public int getK() {
+	return k;
+    }
+
+    /**  -------------------------CANDIDATES-------------------------  */
+
+    /**
+     * Lays out each row's k nearest columns, then the extra pairs, in the
+     * candidate arrays.  The k nearest come first, nearest first, so a row's
+     * first candidate is its cheapest
+     */
+    private void buildCandidates() {
+	for(int i = 0; i <= n; i++) {
+	    candStart[i] = 0;
+	}
+	for(int e = 0; e < numExtra; e++) {
+	    candStart[extraRow[e]+1]++;
+	}
+	for(int i = 0; i < n; i++) {
+	    candStart[i+1] += candStart[i] + k;
+	}
+	int numCand = candStart[n];
+	if(candCol == null || candCol.length < numCand) {
+	    candCol = new int[numCand];
+	    candCost = new double[numCand];
+	}
+	//Next free slot of each row
+	int[] next = new int[n];
+	for(int j = 0; j < m; j++) {
+	    tree.update(j, 0, true);
+	}
+	for(int i = 0; i < n; i++) {
+	    next[i] = candStart[i];
+	    for(int c = 0; c < k; c++) {
+		int j = tree.nearest(rowX[i], rowY[i]);
+		candCol[next[i]] = j;
+		candCost[next[i]] = tree.getQueryValue();
+		next[i]++;
+		tree.kill(j);
+	    }
+	    for(int c = candStart[i]; c < next[i]; c++) {
+		tree.update(candCol[c], 0, true);
+	    }
+	}
+	for(int e = 0; e < numExtra; e++) {
+	    int i = extraRow[e];
+	    candCol[next[i]] = extraCol[e];
+	    candCost[next[i]] = cost(i, extraCol[e]);
+	    next[i]++;
+	}
+    }
+
+    /**
+     * Adds pair (i, j) to the extra candidates
+     */
+    private void addExtra(int i, int j) {
+	if(numExtra == extraRow.length) {
+	    int[] newRow = new int[2*numExtra];
+	    int[] newCol = new int[2*numExtra];
+	    System.arraycopy(extraRow, 0, newRow, 0, numExtra);
+	    System.arraycopy(extraCol, 0, newCol, 0, numExtra);
+	    extraRow = newRow;
+	    extraCol = newCol;
+	}
+	extraRow[numExtra] = i;
+	extraCol[numExtra] = j;
+	numExtra++;
+    }
+
+    /**
+     * Checks every left out pair's reduced cost w/ one tree query per row
+     * (see the class comment), and adds the ones below 0 as extras.  Returns
+     * how many were added
+     */
+    private int certify() {
+	for(int j = 0; j < m; j++) {
+	    tree.update(j, -colPrice[j], true);
+	}
+	int added = 0;
+	for(int i = 0; i < n; i++) {
+	    double rowPrice = rowCost[i] - colPrice[rowSol[i]];
+	    double bound = rowPrice - TOLERANCE*(1 + Math.abs(rowPrice));
+	    //Take columns out of the tree until the best one left is fine,
+	    //remembering them in reached[] to put them back after
+	    int numTaken = 0;
+	    while(numTaken < m) {
+		int j = tree.nearest(rowX[i], rowY[i]);
+		if(tree.getQueryValue() >= bound) {
+		    break;
+		}
+		if(!isCandidate(i, j)) {
+		    addExtra(i, j);
+		    added++;
+		}
+		tree.kill(j);
+		reached[numTaken] = j;
+		numTaken++;
+	    }
+	    for(int t = 0; t < numTaken; t++) {
+		tree.update(reached[t], -colPrice[reached[t]], true);
+	    }
+	}
+	return added;
+    }
+
+    private boolean isCandidate(int i, int j) {
+	for(int c = candStart[i]; c < candStart[i+1]; c++) {
+	    if(candCol[c] == j) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**  -------------------------SOLVE-------------------------  */
+
+    /**
+     * Solves the matching on the candidate pairs from scratch.  Returns false
+     * if some row has no augmenting path (so k has to grow)
+     */
+    private boolean solve() {
+	for(int j = 0; j < m; j++) {
+	    colSol[j] = -1;
+	    colPrice[j] = 0;
+	    d[j] = Double.MAX_VALUE;
+	    settled[j] = false;
+	}
+	//W/ all prices 0, each row can take its nearest column if it is free
+	for(int i = 0; i < n; i++) {
+	    int j = candCol[candStart[i]];
+	    if(colSol[j] == -1) {
+		rowSol[i] = j;
+		colSol[j] = i;
+		rowCost[i] = candCost[candStart[i]];
+	    } else {
+		rowSol[i] = -1;
+	    }
+	}
+	for(int i = 0; i < n; i++) {
+	    if(rowSol[i] == -1 && !augment(i)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Gives freeRow a column along a shortest augmenting path over the
+     * candidate pairs, as in JonkerVolgenant.augment().  Returns false if
+     * there is none
+     */
+    private boolean augment(int freeRow) {
+	numReached = 0;
+	scanRow(freeRow, 0);
+	int endOfPath = -1;
+	while(!colHeap.isEmpty()) {
+	    int j = colHeap.poll();
+	    settled[j] = true;
+	    if(colSol[j] == -1) {
+		endOfPath = j;
+		break;
+	    }
+	    int i = colSol[j];
+	    //Reduced cost of (i,j) is 0, so row i is at distance d[j] too
+	    scanRow(i, d[j] - rowCost[i] + colPrice[j]);
+	}
+	colHeap.clear();
+	boolean found = endOfPath != -1;
+	if(found) {
+	    //Update the prices of the columns which are done
+	    double min = d[endOfPath];
+	    for(int t = 0; t < numReached; t++) {
+		int j = reached[t];
+		if(settled[j]) {
+		    colPrice[j] += d[j] - min;
+		}
+	    }
+	    //Flip the assignments along the path
+	    int i;
+	    do {
+		i = pred[endOfPath];
+		colSol[endOfPath] = i;
+		int j1 = endOfPath;
+		endOfPath = rowSol[i];
+		rowSol[i] = j1;
+		rowCost[i] = cost(i, j1);
+	    } while(i != freeRow);
+	}
+	for(int t = 0; t < numReached; t++) {
+	    d[reached[t]] = Double.MAX_VALUE;
+	    settled[reached[t]] = false;
+	}
+	return found;
+    }
+
+    /**
+     * Relaxes every candidate pair of row i, which is at distance offset
+     */
+    private void scanRow(int i, double offset) {
+	for(int c = candStart[i]; c < candStart[i+1]; c++) {
+	    int j = candCol[c];
+	    if(settled[j]) {
+		continue;
+	    }
+	    double dist = offset + candCost[c] - colPrice[j];
+	    if(dist < d[j]) {
+		if(d[j] == Double.MAX_VALUE) {
+		    reached[numReached] = j;
+		    numReached++;
+		}
+		d[j] = dist;
+		pred[j] = i;
+		colHeap.insertOrDecrease(j, dist);
+	    }
+	}
+    }
+
+    private double cost(int i, int j) {
+	return xyDistance(colX[j], rowX[i], colY[j], rowY[i]);
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates
+     */
+    private double xyDistance(int x1, int x2, int y1, int y2) {
+	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * A 2-d tree over a fixed set of points, each w/ a weight, which answers
+ * "weighted nearest neighbor" queries: the live point p minimizing
+ * distance(q, p) + weight(p) for a query point q
+ *
+ * Points can be killed (left out of queries) and revived, and their weights
+ * changed, in O(log n).  GeometricMatch uses it for the Hungarian search,
+ * w/ the weights being the negated server prices, and ApproxAuctionMatch
+ * for its bids, w/ the weights being the prices
+ *
+ * The tree is stored implicitly: the points are sorted into order[] so that
+ * the subtree over order[lo..hi-1] has its root at mid = (lo+hi)/2, the left
+ * subtree over order[lo..mid-1] and the right one over order[mid+1..hi-1].
+ * Each root also keeps the bounding box of its subtree and the smallest
+ * weight of a live point in it, which together give a lower bound for the
+ * whole subtree, so most of the tree is never looked at
+ */
+public class KdTree {
+
+    private int n;
+    private int[] xs;
+    private int[] ys;
+    private double[] weight;
+    private boolean[] alive;
+
+    //order[k] is the point at tree position k, position[p] is where point p is
+    private int[] order;
+    private int[] position;
+
+    //Per tree position: split on x (true) or y, the bounding box of the
+    //subtree rooted there, and the smallest weight of a live point in it
+    private boolean[] splitX;
+    private int[] minX;
+    private int[] maxX;
+    private int[] minY;
+    private int[] maxY;
+    private double[] minWeight;
+
+    //Best point and value found by the current query, and the second best
+    //value if the query asked for it
+    private int bestPoint;
+    private double bestValue;
+    private double secondValue;
+    private boolean findSecond;
+    private int queryX;
+    private int queryY;
+
+    /**
+     * Builds the tree over points (xs[p], ys[p]), all alive w/ weight 0
+     */
+    public KdTree(int[] xs, int[] ys) {
+	this.xs = xs;
+	this.ys = ys;
+	n = xs.length;
+	weight = new double[n];
+	alive = new boolean[n];
+	order = new int[n];
+	position = new int[n];
+	splitX = new boolean[n];
+	minX = new int[n];
+	maxX = new int[n];
+	minY = new int[n];
+	maxY = new int[n];
+	minWeight = new double[n];
+	for(int p = 0; p < n; p++) {
+	    order[p] = p;
+	}
+	rebuild();
+    }
+
+    /**
+     * Builds the tree again after the points' coordinates were changed in
+     * the xs and ys arrays given to the constructor, w/ every point alive
+     * and weight 0.  No arrays are allocated
+     */
+    public void rebuild() {
+	for(int p = 0; p < n; p++) {
+	    weight[p] = 0;
+	    alive[p] = true;
+	}
+	build(0, n);
+	for(int k = 0; k < n; k++) {
+	    position[order[k]] = k;
+	}
+    }
+
+    public int size() {
+	return n;
+    }
+
+    public double getWeight(int p) {
+	return weight[p];
+    }
+
+    public boolean isAlive(int p) {
+	return alive[p];
+    }
+
+    /**
+     * Sets point p's weight and whether it is alive, and updates the subtree
+     * minimums on its way up from the root
+     */
+    public void update(int p, double w, boolean isAlive) {
+	weight[p] = w;
+	alive[p] = isAlive;
+	update(0, n, position[p]);
+    }
+
+    public void kill(int p) {
+	update(p, weight[p], false);
+    }
+
+    /**
+     * The live point minimizing distance to (x, y) plus weight, or -1 if no
+     * point is alive.  getQueryValue() gives that minimum
+     */
+    public int nearest(int x, int y) {
+	return query(x, y, false);
+    }
+
+    /**
+     * Same as nearest(), but also finds the second smallest distance plus
+     * weight over the live points, see getSecondValue()
+     */
+    public int nearestTwo(int x, int y) {
+	return query(x, y, true);
+    }
+
+    /**
+     * distance + weight of the point found by the last query
+     */
+    public double getQueryValue() {
+	return bestValue;
+    }
+
+    /**
+     * Second smallest distance + weight found by the last nearestTwo(), or
+     * Double.MAX_VALUE if only one point is alive
+     */
+    public double getSecondValue() {
+	return secondValue;
+    }
+
+    private int query(int x, int y, boolean findSecond) {
+	queryX = x;
+	queryY = y;
+	this.findSecond = findSecond;
+	bestPoint = -1;
+	bestValue = Double.MAX_VALUE;
+	secondValue = Double.MAX_VALUE;
+	search(0, n);
+	return bestPoint;
+    }
+
+    /**  -------------------------TREE-------------------------  */
+
+    /**
+     * Puts the median of order[lo..hi-1] (along the wider side of their
+     * bounding box) at mid, w/ the smaller points before it and the larger
+     * after it, then builds both halves
+     */
+    private void build(int lo, int hi) {
+	if(lo >= hi) {
+	    return;
+	}
+	int mid = (lo + hi)/2;
+	int x0 = Integer.MAX_VALUE;
+	int x1 = Integer.MIN_VALUE;
+	int y0 = Integer.MAX_VALUE;
+	int y1 = Integer.MIN_VALUE;
+	for(int k = lo; k < hi; k++) {
+	    int p = order[k];
+	    x0 = Math.min(x0, xs[p]);
+	    x1 = Math.max(x1, xs[p]);
+	    y0 = Math.min(y0, ys[p]);
+	    y1 = Math.max(y1, ys[p]);
+	}
+	minX[mid] = x0;
+	maxX[mid] = x1;
+	minY[mid] = y0;
+	maxY[mid] = y1;
+	splitX[mid] = x1 - x0 >= y1 - y0;
+	select(lo, hi - 1, mid, splitX[mid]);
+	build(lo, mid);
+	build(mid + 1, hi);
+	minWeight[mid] = 0;
+    }
+
+    /**
+     * Quickselect: rearranges order[lo..hi] so the point at k is the one
+     * which would be there if they were sorted by coordinate
+     */
+    private void select(int lo, int hi, int k, boolean byX) {
+	while(lo < hi) {
+	    int pivot = coord(order[(lo + hi)/2], byX);
+	    int i = lo;
+	    int j = hi;
+	    while(i <= j) {
+		while(coord(order[i], byX) < pivot) {
+		    i++;
+		}
+		while(coord(order[j], byX) > pivot) {
+		    j--;
+		}
+		if(i <= j) {
+		    int tmp = order[i];
+		    order[i] = order[j];
+		    order[j] = tmp;
+		    i++;
+		    j--;
+		}
+	    }
+	    if(k <= j) {
+		hi = j;
+	    } else if(k >= i) {
+		lo = i;
+	    } else {
+		break;
+	    }
+	}
+    }
+
+    private int coord(int p, boolean byX) {
+	return byX ? xs[p] : ys[p];
+    }
+
+    /**
+     * Recomputes minWeight along the path from the root of order[lo..hi-1]
+     * down to tree position pos
+     */
+    private void update(int lo, int hi, int pos) {
+	int mid = (lo + hi)/2;
+	if(pos < mid) {
+	    update(lo, mid, pos);
+	} else if(pos > mid) {
+	    update(mid + 1, hi, pos);
+	}
+	double w = alive[order[mid]] ? weight[order[mid]] : Double.MAX_VALUE;
+	if(lo < mid) {
+	    w = Math.min(w, minWeight[(lo + mid)/2]);
+	}
+	if(mid + 1 < hi) {
+	    w = Math.min(w, minWeight[(mid + 1 + hi)/2]);
+	}
+	minWeight[mid] = w;
+    }
+
+    private void search(int lo, int hi) {
+	if(lo >= hi) {
+	    return;
+	}
+	int mid = (lo + hi)/2;
+	double bound = findSecond ? secondValue : bestValue;
+	if(minWeight[mid] == Double.MAX_VALUE || lowerBound(mid) >= bound) {
+	    return;
+	}
+	int p = order[mid];
+	if(alive[p]) {
+	    double v = distance(queryX, queryY, xs[p], ys[p]) + weight[p];
+	    if(v < bestValue) {
+		secondValue = bestValue;
+		bestValue = v;
+		bestPoint = p;
+	    } else if(v < secondValue) {
+		secondValue = v;
+	    }
+	}
+	//Closer side first, so the other side is more likely to be pruned
+	boolean leftFirst = splitX[mid] ? queryX <= xs[p] : queryY <= ys[p];
+	if(leftFirst) {
+	    search(lo, mid);
+	    search(mid + 1, hi);
+	} else {
+	    search(mid + 1, hi);
+	    search(lo, mid);
+	}
+    }
+
+    /**
+     * No live point in the subtree rooted at mid can do better than this
+     */
+    private double lowerBound(int mid) {
+	int dx = Math.max(0, Math.max(minX[mid] - queryX, queryX - maxX[mid]));
+	int dy = Math.max(0, Math.max(minY[mid] - queryY, queryY - maxY[mid]));
+	return Math.sqrt((double)dx*dx + (double)dy*dy) + minWeight[mid];
+    }
+
+    /**
+     * Same value as xyDistance() elsewhere, w/o going through Math.pow()
+     */
+    private double distance(int x1, int y1, int x2, int y2) {
+	double dx = x2 - x1;
+	double dy = y2 - y1;
+	return Math.sqrt(dx*dx + dy*dy);
+    }
+}
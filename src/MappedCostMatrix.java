@@ -0,0 +1,200 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A CostMatrix kept in a memory-mapped file instead of on the heap, for
+ * instances whose matrix is bigger than the heap (or than the 2^31 elements
+ * a Java array can hold)
+ *
+ * The file is mapped in chunks of whole rows, each at most CHUNK_BYTES, as
+ * one MappedByteBuffer can't go past 2 GB.  The OS pages the matrix in and
+ * out as needed, and none of it is ever seen by the garbage collector
+ *
+ * The matrix is filled once, by several threads each working through blocks
+ * of ROW_BLOCK rows, and after that it is only read, so the same matrix can
+ * be passed to JonkerVolgenant, OptBottleneck, ImplicitBipartiteGraph (for
+ * MaxFlowBP) and GreedyKernel, even on different threads.  setNodes() and
+ * set() do write to it, so they shouldn't be called while it's being read.
+ * ImplicitBipartiteGraph numbers its arcs in an int, so MaxFlowBP is still
+ * limited to about 45000 nodes on each side whatever the matrix holds
+ *
+ * Each matrix has its own file, as big as the matrix, and deleteOnExit()
+ * only gets to it when the program ends.  So callers must either reuse one
+ * matrix for each new set of nodes (setNodes(), the same sizes) or close()
+ * it when done, or a long run fills the disk w/ old matrices
+ */
+public class MappedCostMatrix extends CostMatrix {
+
+    //Most bytes in one mapped chunk
+    private static final long CHUNK_BYTES = 1L << 30;
+
+    //Rows each thread fills at a time
+    private static final int ROW_BLOCK = 64;
+
+    private File file;
+    //Only a temporary file is deleted by close()
+    private boolean tempFile;
+    private boolean useFloat;
+    //4 or 8
+    private int elementBytes;
+
+    //Row i is row i % rowsPerChunk of chunks[i / rowsPerChunk]
+    private MappedByteBuffer[] chunks;
+    private int rowsPerChunk;
+
+    /**
+     * Builds the matrix of distances from each of rNodes to each of sNodes in
+     * a temporary file, deleted by close() (or else when the program exits)
+     */
+    public MappedCostMatrix(ArrayList<Node> sNodes, ArrayList<Node> rNodes, boolean useFloat) {
+	this(sNodes, rNodes, useFloat, null);
+    }
+
+    /**
+     * Same, but in the given file (which is overwritten), or a temporary one
+     * if file is null
+     */
+    public MappedCostMatrix(ArrayList<Node> sNodes, ArrayList<Node> rNodes, boolean useFloat, File file) {
+	super(rNodes.size(), sNodes.size());
+	this.useFloat = useFloat;
+	elementBytes = useFloat ? 4 : 8;
+	try {
+	    if(file == null) {
+		file = File.createTempFile("costs", ".bin");
+		file.deleteOnExit();
+		tempFile = true;
+	    }
+	    this.file = file;
+	    map();
+	} catch(IOException e) {
+	    throw new IllegalStateException("Could not map the cost matrix to " + file, e);
+	}
+	setNodes(sNodes, rNodes);
+    }
+
+    private void map() throws IOException {
+	long rowBytes = (long)numCols*elementBytes;
+	rowsPerChunk = (int)Math.max(1, Math.min(numRows, CHUNK_BYTES/Math.max(1, rowBytes)));
+	chunks = new MappedByteBuffer[(numRows + rowsPerChunk - 1)/rowsPerChunk];
+	RandomAccessFile raf = new RandomAccessFile(file, "rw");
+	try {
+	    raf.setLength(numRows*rowBytes);
+	    FileChannel channel = raf.getChannel();
+	    for(int c = 0; c < chunks.length; c++) {
+		int rows = Math.min(rowsPerChunk, numRows - c*rowsPerChunk);
+		long start = (long)c*rowsPerChunk*rowBytes;
+		chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, start, rows*rowBytes);
+		chunks[c].order(ByteOrder.nativeOrder());
+	    }
+	} finally {
+	    //The mappings stay valid after the file is closed
+	    raf.close();
+	}
+    }
+
+    public File getFile() {
+	return file;
+    }
+
+    /**
+     * Unmaps the matrix and deletes its file if it's a temporary one (a file
+     * given to the constructor is left alone).  The matrix can't be used after
+     *
+     * There's no way to unmap a MappedByteBuffer by hand, so the chunks are
+     * just dropped for the garbage collector.  Deleting the file while still
+     * mapped is fine on Unix, the space comes back once the mapping goes; on
+     * Windows the delete fails and deleteOnExit() is left to get it
+     */
+    @Override
+    public void close() {
+	chunks = null;
+	if(tempFile && file != null) {
+	    file.delete();
+	    file = null;
+	}
+    }
+
+    @Override
+    public boolean isFloat() {
+	return useFloat;
+    }
+
+    @Override
+    public double get(int i, int j) {
+	MappedByteBuffer chunk = chunks[i / rowsPerChunk];
+	int pos = ((i % rowsPerChunk)*numCols + j)*elementBytes;
+	if(useFloat) {
+	    return chunk.getFloat(pos);
+	}
+	return chunk.getDouble(pos);
+    }
+
+    @Override
+    public void set(int i, int j, double c) {
+	MappedByteBuffer chunk = chunks[i / rowsPerChunk];
+	int pos = ((i % rowsPerChunk)*numCols + j)*elementBytes;
+	if(useFloat) {
+	    chunk.putFloat(pos, (float)c);
+	} else {
+	    chunk.putDouble(pos, c);
+	}
+    }
+
+    /**
+     * Fills the matrix in parallel, one block of rows at a time per thread
+     */
+    @Override
+    public void setNodes(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	final int[] sX = new int[numCols];
+	final int[] sY = new int[numCols];
+	for(int j = 0; j < numCols; j++) {
+	    sX[j] = sNodes.get(j).getX();
+	    sY[j] = sNodes.get(j).getY();
+	}
+	final int[] rX = new int[numRows];
+	final int[] rY = new int[numRows];
+	for(int i = 0; i < numRows; i++) {
+	    rX[i] = rNodes.get(i).getX();
+	    rY[i] = rNodes.get(i).getY();
+	}
+	final int numBlocks = (numRows + ROW_BLOCK - 1)/ROW_BLOCK;
+	final AtomicInteger nextBlock = new AtomicInteger();
+	int numThreads = Math.max(1, Math.min(numBlocks, Runtime.getRuntime().availableProcessors()));
+	Thread[] workers = new Thread[numThreads];
+	for(int t = 0; t < numThreads; t++) {
+	    workers[t] = new Thread(new Runnable() {
+		    public void run() {
+			int b;
+			while((b = nextBlock.getAndIncrement()) < numBlocks) {
+			    int end = Math.min(numRows, (b+1)*ROW_BLOCK);
+			    for(int i = b*ROW_BLOCK; i < end; i++) {
+				for(int j = 0; j < numCols; j++) {
+				    set(i, j, xyDistance(sX[j], rX[i], sY[j], rY[i]));
+				}
+			    }
+			}
+		    }
+		});
+	    workers[t].start();
+	}
+	//Wait for every worker even if interrupted, so the matrix is never left half built
+	boolean interrupted = false;
+	for(int t = 0; t < numThreads; t++) {
+	    try {
+		workers[t].join();
+	    } catch(InterruptedException e) {
+		interrupted = true;
+		t--;
+	    }
+	}
+	if(interrupted) {
+	    Thread.currentThread().interrupt();
+	}
+    }
+}
@@ -21,7 +21,7 @@ public class MatchInfo {
     public MatchInfo(Node sNode, Node rNode) {
 	this.sNode = sNode;
 	this.rNode = rNode;
-	distance = xyDistance(sNode.xPos, rNode.xPos, sNode.yPos, rNode.yPos);
+	distance = xyDistance(sNode.getX(), rNode.getX(), sNode.getY(), rNode.getY());
     }
     
     /**
@@ -24,6 +24,11 @@ public class MatchingAlgorithms {
 
     private PermutationMatch pm;
 
+    //W/ useMappedCosts, one MappedCostMatrix per set of nodes is shared by
+    //runJonkerVolgenant(), runOptBottleneck() and greedyOfflineMatch()
+    private boolean useMappedCosts;
+    private CostMatrix costs;
+
     public MatchingAlgorithms(int numberNodes, int maxDistance) {
 	this.numberNodes = numberNodes;
 	this.maxDistance = maxDistance;
@@ -36,6 +41,7 @@ public class MatchingAlgorithms {
      * range specified by DISTANCE_RANGE
      */
     public void newRandomNodes() {
+	closeCosts();
 	sNodes.clear();
 	rNodes.clear();
 	Random rand = new Random();
@@ -57,49 +63,120 @@ public class MatchingAlgorithms {
 	this.numberNodes = numberNodes;
     }
 
-    /**  -------------------------MAX FLOW-------------------------  */
-    
-    private Graph makeGraph(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
-	Graph g = new Graph();
-	int index = 1;
-	for(Node s: sNodes) {
-	    g.xNodes.put(index, s);
-	    g.addEdgeFromSource(index);
-	    index++;
+    /**
+     * Keep the offline algorithms' cost matrix in a memory-mapped file (see
+     * MappedCostMatrix), built once per set of nodes and shared between them
+     */
+    public void setUseMappedCosts(boolean useMappedCosts) {
+	if(useMappedCosts != this.useMappedCosts) {
+	    closeCosts();
 	}
-	index = 1;
-	for(Node r: rNodes) {
-	    g.yNodes.put(index, r);
-	    g.addEdgeToSink(index);
-	    index++;
+	this.useMappedCosts = useMappedCosts;
+    }
+
+    /**
+     * The shared cost matrix for the current nodes, or null w/o useMappedCosts
+     */
+    private CostMatrix getCosts() {
+	if(useMappedCosts && costs == null) {
+	    costs = new MappedCostMatrix(sNodes, rNodes, false);
 	}
-	//Add all the edges
-	index = 1;
-	int rIndex = 1;
-	for(Node s: sNodes) {
-	    //Reset server node index
-	    rIndex = 1;
-	    for(Node r: rNodes) {
-		g.addEdge(index, rIndex, xyDistance(s.xPos, r.xPos, s.yPos, r.yPos));
-		rIndex++;
-	    }
-	    index++;
+	return costs;
+    }
+
+    /**
+     * Deletes the shared cost matrix, once the nodes it was built from change
+     */
+    public void closeCosts() {
+	if(costs != null) {
+	    costs.close();
+	    costs = null;
 	}
-	return g;
     }
 
-    public ArrayList<Graph.Edge> runMaxFlowBP() {
-	mf = new MaxFlowBP(makeGraph(sNodes, rNodes));
-	ArrayList<Graph.Edge> mfMatching = mf.runAlgorithm();
+    /**  -------------------------MAX FLOW-------------------------  */
+    
+    public ArrayList<MatchInfo> runMaxFlowBP() {
+	mf = new MaxFlowBP(new ResidualGraph(sNodes, rNodes));
+	ArrayList<MatchInfo> mfMatching = mf.runResidualAlgorithm();
 	return mfMatching;
     }
 
+    /**
+     * Same optimal matching as runMaxFlowBP(), found w/ JonkerVolgenant
+     */
+    public ArrayList<MatchInfo> runJonkerVolgenant() {
+	if(useMappedCosts) {
+	    return new JonkerVolgenant(sNodes, rNodes, getCosts()).run();
+	}
+	return new JonkerVolgenant(sNodes, rNodes).run();
+    }
+
+    /**
+     * The matching whose longest edge is as short as possible, found w/
+     * OptBottleneck
+     */
+    public ArrayList<MatchInfo> runOptBottleneck() {
+	return new OptBottleneck(sNodes, rNodes, getCosts()).run();
+    }
+
+    /**
+     * Same optimal matching as runMaxFlowBP(), found w/ AuctionMatch
+     *
+     * AuctionMatch is square only: throws IllegalArgumentException unless
+     * there are as many server nodes as request nodes
+     */
+    public ArrayList<MatchInfo> runAuctionMatch() {
+	return new AuctionMatch(sNodes, rNodes).run();
+    }
+
+    /**
+     * Same optimal matching as runMaxFlowBP(), found w/ CostScalingFlow
+     */
+    public ArrayList<MatchInfo> runCostScalingFlow() {
+	return new CostScalingFlow(new ResidualGraph(sNodes, rNodes)).run();
+    }
+
+    /**
+     * Same optimal matching as runMaxFlowBP(), found w/ GeometricMatch
+     */
+    public ArrayList<MatchInfo> runGeometricMatch() {
+	return new GeometricMatch(sNodes, rNodes).run();
+    }
+
+    /**
+     * Same optimal matching as runMaxFlowBP(), found w/ KNearestMatch, which
+     * starts from each request node's k nearest server nodes
+     */
+    public ArrayList<MatchInfo> runKNearestMatch(int k) {
+	return new KNearestMatch(sNodes, rNodes, k).run();
+    }
+
+    /**
+     * A matching within (1 + approximation) of optimal, found w/
+     * ApproxAuctionMatch
+     */
+    public ArrayList<MatchInfo> runApproxAuctionMatch(double approximation) {
+	return new ApproxAuctionMatch(sNodes, rNodes, approximation).run();
+    }
+
     public ArrayList<MatchInfo> runPermutationMatch() {
 	pm = new PermutationMatch(sNodes, rNodes);
 	ArrayList<MatchInfo> pmMatching = pm.runAlgorithm();
 	return pmMatching;
     }
 
+    /**
+     * Permutation matching w/ one augmenting path per request node.  Not
+     * always the same server choices as runPermutationMatch() when distances
+     * tie, see PermutationMatch.setIncremental()
+     */
+    public ArrayList<MatchInfo> runIncrementalPermutationMatch() {
+	pm = new PermutationMatch(sNodes, rNodes);
+	pm.setIncremental(true);
+	return pm.runAlgorithm();
+    }
+
      /**  -------------------------GREEDY ONLINE-------------------------  */
 
     /**
@@ -108,23 +185,9 @@ public class MatchingAlgorithms {
      */
     public MatchInfo[] greedyOnlineMatch() {
 	MatchInfo[] matches = new MatchInfo[numberNodes];
-	double maxDistance = xyDistance(0, DISTANCE_RANGE, 0, DISTANCE_RANGE);  //Max possible distance
-	ArrayList<Node> sNodesCopy = getSNodes();
-	int index = 0;
-	for(Node r: rNodes) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches[index] = new MatchInfo(r, sNodesCopy.get(selectedSNodeIndex), minDistance);
-	    sNodesCopy.remove(selectedSNodeIndex);
-	    index++;
-	}
+	GreedyKernel gk = new GreedyKernel(sNodes, rNodes);
+	gk.runGreedy();
+	gk.getMatching(matches);
 	return matches;
     }
 
@@ -137,103 +200,40 @@ public class MatchingAlgorithms {
      * Greedy Threshold algorithms, which are actually tested
      */
     public MatchInfo[] randomGreedyOnlineMatch() {
-	Random rand = new Random();
 	MatchInfo[] matches = new MatchInfo[numberNodes];
-	double maxDistance = xyDistance(0, DISTANCE_RANGE, 0, DISTANCE_RANGE);  //Max possible distance
-	ArrayList<Node> sNodesCopy = getSNodes();
-	int index = 0;
-	for(Node r: rNodes) {
-	    //If only one node left to match, match to last s Node
-	    if(sNodesCopy.size() == 1) {
-		Node lastSNode = sNodesCopy.get(0);
-		double lastMatchDist = xyDistance(r.xPos, lastSNode.xPos, r.yPos, lastSNode.yPos);
-		matches[index] = new MatchInfo(r, lastSNode, lastMatchDist);
-		break;
-	    }
-	    double minDistanceOne = maxDistance;
-	    double minDistanceTwo = maxDistance;
-	    int selectedIndexOne = 0;
-	    int selectedIndexTwo = 0;
-	    //Find the smallest distance
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceOne) {
-		    minDistanceOne = dist;
-		    selectedIndexOne = i;
-		}
-	    }
-	    //Re-loop to find the second smallest distance.  Far from the best way to do this!
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceTwo && i != selectedIndexOne) {
-		    minDistanceTwo = dist;
-		    selectedIndexTwo = i;
-		}
-	    }
-	    //Randomly select one of the two
-	    boolean choice = rand.nextBoolean();
-	    if(choice) {
-		matches[index] = new MatchInfo(r, sNodesCopy.get(selectedIndexOne), minDistanceOne);
-		sNodesCopy.remove(selectedIndexOne);
-
-	    } else {
-		matches[index] = new MatchInfo(r, sNodesCopy.get(selectedIndexTwo), minDistanceTwo);
-		sNodesCopy.remove(selectedIndexTwo);
-	    }
-	    index++;
-	}
+	GreedyKernel gk = new GreedyKernel(sNodes, rNodes);
+	gk.runRandomGreedy(new Random());
+	gk.getMatching(matches);
 	return matches;
     }
 
     /**  -------------------------GREEDY OFFLINE-------------------------  */
 
     /**
-     * Constructs every possible request-server match, chooses the match w/ 
-     * minimum cost, rinse and repeat until all requests are matched
+     * Chooses the unmatched request-server pair w/ minimum cost, rinse and
+     * repeat until all requests are matched.  Ties go to the lowest server
+     * node, then the lowest request node
+     *
+     * Done by GreedyKernel.runOfflineGreedy(), which keeps each request's
+     * closest server instead of a list of every possible match, and reads the
+     * shared cost matrix w/ useMappedCosts
      */ 
     public MatchInfo[] greedyOfflineMatch() {
 	MatchInfo[] finalMatches = new MatchInfo[numberNodes];
-	ArrayList<MatchInfo> allMatches = constructFullMatchingList();
-	for(int i = 0; i < numberNodes; i++) {
-	    MatchInfo match = findMinMatch(allMatches);
-	    allMatches = removeMatchedNodes(allMatches, match.sNode, match.rNode);
-	    finalMatches[i] = match;
+	GreedyKernel gk = useMappedCosts ? new GreedyKernel(sNodes, rNodes, getCosts())
+	    : new GreedyKernel(sNodes, rNodes);
+	gk.runOfflineGreedy(numberNodes);
+	int[] order = gk.getMatchOrder();
+	int[] assignment = gk.getAssignment();
+	for(int i = 0; i < gk.getNumMatched(); i++) {
+	    Node rNode = rNodes.get(order[i]);
+	    Node sNode = sNodes.get(assignment[order[i]]);
+	    double dist = xyDistance(sNode.getX(), rNode.getX(), sNode.getY(), rNode.getY());
+	    finalMatches[i] = new MatchInfo(sNode, rNode, dist);
 	}
 	return finalMatches;
     }
 
-    /**
-     * Iteratively searches through each possible match generated by 
-     * constructFullMatchingList(), chooses minimum
-     */
-    private MatchInfo findMinMatch(ArrayList<MatchInfo> allMatches) {
-	int minDistIndex = 0;
-	double minDist = allMatches.get(0).distance;
-	for(MatchInfo match: allMatches) {
-	    if(match.distance < minDist) {
-		minDistIndex = allMatches.indexOf(match);
-		minDist = match.distance;
-	    }
-	}
-	return allMatches.get(minDistIndex);
-    }
-
-    /**
-     * Constructs every possible match between unmatched request and server nodes
-     */
-    private ArrayList<MatchInfo> constructFullMatchingList() {
-	ArrayList<MatchInfo> allMatches = new ArrayList<MatchInfo>();
-	for(int i = 0; i < sNodes.size(); i++) {
-	    Node sNode = sNodes.get(i);
-	    for(int j = 0; j < rNodes.size(); j++) {
-		Node rNode = rNodes.get(j);
-		double dist = xyDistance(sNode.xPos, rNode.xPos, sNode.yPos, rNode.yPos);
-		allMatches.add(new MatchInfo(sNode, rNode, dist));
-	    }
-	}
-	return allMatches;
-    }
-
     /**
      * Called after a request-server match is made, to remove the matched nodes
      * from the lists of nodes that are yet to be matched
@@ -58,38 +58,9 @@ public class MatchingAlgorithmsTest {
 
     /**  -------------------------MAX FLOW-------------------------  */
     
-    private Graph makeGraph(ArrayList<Node> rNodes, ArrayList<Node> sNodes) {
-	Graph g = new Graph();
-	int index = 1;
-	for(Node r: rNodes) {
-	    g.xNodes.put(index, r);
-	    g.addEdgeFromSource(index);
-	    index++;
-	}
-	index = 1;
-	for(Node s: sNodes) {
-	    g.yNodes.put(index, s);
-	    g.addEdgeToSink(index);
-	    index++;
-	}
-	//Add all the edges
-	index = 1;
-	int sIndex = 1;
-	for(Node r: rNodes) {
-	    //Reset server node index
-	    sIndex = 1;
-	    for(Node s: sNodes) {
-		g.addEdge(index, sIndex, xyDistance(r.xPos, s.xPos, r.yPos, s.yPos));
-		sIndex++;
-	    }
-	    index++;
-	}
-	return g;
-    }
-
-    public ArrayList<Graph.Edge> runMaxFlowBP() {
-	MaxFlowBP mf = new MaxFlowBP(makeGraph(rNodes, sNodes));
-	ArrayList<Graph.Edge> mfMatching = mf.runAlgorithm();
+    public ArrayList<MatchInfo> runMaxFlowBP() {
+	MaxFlowBP mf = new MaxFlowBP(new ResidualGraph(rNodes, sNodes));
+	ArrayList<MatchInfo> mfMatching = mf.runResidualAlgorithm();
 	return mfMatching;
     }
 
@@ -105,23 +76,9 @@ public class MatchingAlgorithmsTest {
 
     public MatchInfo[] greedyOnlineMatch() {
 	MatchInfo[] matches = new MatchInfo[numberNodes];
-	double maxDistance = Double.MAX_VALUE;
-	ArrayList<Node> sNodesCopy = getSNodes();
-	int index = 0;
-	for(Node r: rNodes) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches[index] = new MatchInfo(r, sNodesCopy.get(selectedSNodeIndex), minDistance);
-	    sNodesCopy.remove(selectedSNodeIndex);
-	    index++;
-	}
+	GreedyKernel gk = new GreedyKernel(sNodes, rNodes);
+	gk.runGreedy();
+	gk.getMatching(matches);
 	return matches;
     }
 
@@ -131,51 +88,10 @@ public class MatchingAlgorithmsTest {
      * Determines the 2 closest matches for each Request Node, randomly selects one
      */
     public MatchInfo[] randomGreedyOnlineMatch() {
-	Random rand = new Random();
 	MatchInfo[] matches = new MatchInfo[numberNodes];
-	double maxDistance = xyDistance(0, distanceRange, 0, distanceRange);  //Max possible distance
-	ArrayList<Node> sNodesCopy = getSNodes();
-	int index = 0;
-	for(Node r: rNodes) {
-	    //If only one node left to match, match to last s Node
-	    if(sNodesCopy.size() == 1) {
-		Node lastSNode = sNodesCopy.get(0);
-		double lastMatchDist = xyDistance(r.xPos, lastSNode.xPos, r.yPos, lastSNode.yPos);
-		matches[index] = new MatchInfo(r, lastSNode, lastMatchDist);
-		break;
-	    }
-	    double minDistanceOne = maxDistance;
-	    double minDistanceTwo = maxDistance;
-	    int selectedIndexOne = 0;
-	    int selectedIndexTwo = 0;
-	    //Find the smallest distance
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceOne) {
-		    minDistanceOne = dist;
-		    selectedIndexOne = i;
-		}
-	    }
-	    //Re-loop to find the second smallest distance.  Far from the best way to do this!
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceTwo && i != selectedIndexOne) {
-		    minDistanceTwo = dist;
-		    selectedIndexTwo = i;
-		}
-	    }
-	    //Randomly select one of the two
-	    boolean choice = rand.nextBoolean();
-	    if(choice) {
-		matches[index] = new MatchInfo(r, sNodesCopy.get(selectedIndexOne), minDistanceOne);
-		sNodesCopy.remove(selectedIndexOne);
-
-	    } else {
-		matches[index] = new MatchInfo(r, sNodesCopy.get(selectedIndexTwo), minDistanceTwo);
-		sNodesCopy.remove(selectedIndexTwo);
-	    }
-	    index++;
-	}
+	GreedyKernel gk = new GreedyKernel(sNodes, rNodes);
+	gk.runRandomGreedy(new Random());
+	gk.getMatching(matches);
 	return matches;
     }
 
@@ -210,7 +126,7 @@ public class MatchingAlgorithmsTest {
 	    Node rNode = rNodes.get(i);
 	    for(int j = 0; j < sNodes.size(); j++) {
 		Node sNode = sNodes.get(j);
-		double dist = xyDistance(rNode.xPos, sNode.xPos, rNode.yPos, sNode.yPos);
+		double dist = xyDistance(rNode.getX(), sNode.getX(), rNode.getY(), sNode.getY());
 		allMatches.add(new MatchInfo(rNode, sNode, dist));
 	    }
 	}
@@ -262,10 +178,10 @@ public class MatchingAlgorithmsTest {
 				sb.append("\n\n------NODE SIZE("+i+") ITERATION " + j + "------");
 				System.out.println("\n\n------NODE SIZE("+i+") ITERATION " + j + "------\n\n");
 				/**
-				ArrayList<Graph.Edge> mfMatch = mat.runMaxFlowBP();
+				ArrayList<MatchInfo> mfMatch = mat.runMaxFlowBP();
 				double mfCost = 0.0;
-				for(Graph.Edge e: mfMatch) {
-					mfCost += e.getDistance();
+				for(MatchInfo mi: mfMatch) {
+					mfCost += mi.distance;
 				}
 				double avgMFCost  = mfCost/i;
 				sumAvgMFCost += avgMFCost;
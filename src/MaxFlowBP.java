@@ -1,5 +1,4 @@
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * The Optimal Offline Matching Algorithm
@@ -13,291 +12,416 @@ import java.util.HashMap;
  * The implementation of this algorithm is based on Kleinberg and Tardos' 
  * description in their textbook
  *
- * Commented-out println() statements were used in debugging
+ * Runs on a ResidualGraph, w/ int node indices and arcs, see
+ * runResidualAlgorithm()
  */
 public class MaxFlowBP {
 
-    private Graph g;
-    
-    // The set of edges which represent the matching
-    private ArrayList<Graph.Edge> matching;
+    private ResidualGraph rg;
+
+    //Run Dijkstra w/ a heap instead of scanning for the closest node, see Dijkstra
+    private boolean useHeap;
+
+    //Stop each Dijkstra run at the closest free yNode, see Dijkstra
+    private boolean earlyTermination;
+
+    //Run Dijkstra w/ a RadixHeap when rg has integer costs, see Dijkstra
+    private boolean useRadixHeap;
+
+    //After each Dijkstra run, also augment along every
+    //other path of tight arcs it can find, see augmentTightPaths()
+    private boolean batchAugment;
+
+    //Start from a cheap initial matching and prices, see warmStart()
+    private boolean warmStart;
+
+    //Matching and prices given by the caller to start runResidualAlgorithm()
+    //from, see setStartingMatching()
+    private int[] startMateOfX;
+    private double[] startPrices;
+
+    //Largest adjusted cost which still counts as 0 (prices are doubles)
+    private final double TIGHT_TOLERANCE = 1e-9;
+
+    //Dijkstra for runResidualAlgorithm(), kept for the next resolve()
+    private Dijkstra residualDijkstra;
+
+    //Buffers for warmStart()
+    private double[] minCost;
+    private int[] minArc;
+    private boolean[] warmMatched;
+
+    //Buffers for augmentTightPaths()
+    private int[] level;
+    private int[] bfsQueue;
+    private int[] currentArc;
+    private int[] pathArcs;
     
-    public MaxFlowBP(Graph g) {
-	this.g = g;
-	matching = new ArrayList<Graph.Edge>();
+    /**
+     * Runs on rg.  Use runResidualAlgorithm()
+     */
+    public MaxFlowBP(ResidualGraph rg) {
+	this.rg = rg;
+    }
+
+    public void setUseHeap(boolean useHeap) {
+	this.useHeap = useHeap;
+	residualDijkstra = null;
+    }
+
+    public void setEarlyTermination(boolean earlyTermination) {
+	this.earlyTermination = earlyTermination;
     }
 
     /**
-     * Run the Algorithm:
-     *
-     * Setup the intial node prices, then iteratively add augmenting paths
-     * until no more can be added
-     *
-     * Returns an ArrayList of Edges, not MatchInfos.  This is another result
-     * of poor planning!
+     * Only used if rg is in integer-cost mode (see
+     * ResidualGraph.setCostScale())
      */
-    public ArrayList<Graph.Edge> runAlgorithm() {
-	setInitialNodePrices();
-	int counter = 1;
-	while(!isPerfectMatching()) {
-	    System.out.println("\nMF ITERATION >> " + counter);
-	    //Run Dijkstra to get the cost from source node to all other nodes
-	    HashMap<Node, PathInfo> pathsFromSource = new Dijkstra(g).runAlgorithm();
-	    PathInfo minPathToSink = getMinPathToSink(pathsFromSource);
-	    //System.out.println("\nPATH\n" + minPathToSink.path);
-	    augmentPath(minPathToSink);
-	    //change prices
-	    for(Node y: g.yNodes.values()){
-		//Don't modify the price of the sink node!
-		if(!y.id.equals("sink")) {
-		    y.setPrice(y.getPrice() + pathsFromSource.get(y).distance);
-		}
-	    }
-	    for(Node x: g.xNodes.values()){
-		if(!x.id.equals("src")) {
-		    x.setPrice(x.getPrice() + pathsFromSource.get(x).distance);
-		}
-	    }
-	    counter++;
-	    //System.out.println("\nMATCHING\n");
-	    //for(Graph.Edge e: matching)
-		//System.out.println(e + " A. Dist > " + e.getAdjustedDistance());
-	}
-	return matching;
+    public void setUseRadixHeap(boolean useRadixHeap) {
+	this.useRadixHeap = useRadixHeap;
+    }
+
+    public void setBatchAugment(boolean batchAugment) {
+	this.batchAugment = batchAugment;
     }
 
     /**
-     * Similar to runAlgorithm(), but terminates when all REQUEST nodes are matched
+     * Start from a column reduction matching instead of an empty one, so
+     * only the leftovers need augmenting paths.  See warmStart()
      */
-    public ArrayList<Graph.Edge> runIncompleteSet() {
-	// As this is called repeatedly by PermutationMatch, graph must be reset
-	matching.clear();
-	resetGraph();
-	setInitialNodePrices();
-	int counter = 1;
-	while(!allRequestNodesMatched()) {
-	    System.out.println("\nMF (Inc. Set) ITERATION >> " + counter);
-	    HashMap<Node, PathInfo> pathsFromSource = new Dijkstra(g).runAlgorithm();
-	    PathInfo minPathToSink = getMinPathToSink(pathsFromSource);
-	    //System.out.println("PATH\n" + minPathToSink.path);
-	    augmentPath(minPathToSink);
-	    //Update Prices
-	    for(Node y: g.yNodes.values()) {
-		if(!y.id.equals("sink")) {
-		    y.setPrice(y.getPrice() + pathsFromSource.get(y).distance);
-		}
-	    }
-	    for(Node x: g.xNodes.values()) {
-		if(!x.id.equals("src")) {
-		    x.setPrice(x.getPrice() + pathsFromSource.get(x).distance);
-		}
-	    }
-	    counter++;
-	}
-	return matching;
+    public void setWarmStart(boolean warmStart) {
+	this.warmStart = warmStart;
     }
 
     /**
-     * Finds the minimum-cost path to the sink node
-     *
-     * Essentially, finds the unmatched node in yNodes set with minimum distance
-     * from source
+     * Start runResidualAlgorithm() from the given matching and prices
+     * instead of an empty matching and 0 prices
      *
-     * As all sourcenode-to-xNode and yNode-to-sinknode edges are cost-0, this
-     * basically returns the minimum-cost path from an unmatched xNode to
-     * an unmatched yNode
-     */ 
-    private PathInfo getMinPathToSink(HashMap<Node, PathInfo> pathsFromSource) {
-	Node minDistYNode = null;
-	double minDistToSink = Double.MAX_VALUE;
-	for(Node n: g.yNodes.values()) {
-	    if(!n.isMatched() && !n.id.equals("sink") && pathsFromSource.get(n).distance + n.getPrice() < minDistToSink) {
-		minDistYNode = n;
-		minDistToSink = pathsFromSource.get(n).distance + n.getPrice();
-	    }
-	}
-	PathInfo minPathToSink = pathsFromSource.get(minDistYNode);
-	minPathToSink.path.add(g.getEdge(minDistYNode, g.sink));
-	return minPathToSink;
+     * mateOfX[i] is the yNode (counted from 0) xNode i is matched to, or -1.
+     * prices[v] is the price of node index v of the ResidualGraph.  The
+     * prices have to fit the matching: no residual arc may have a negative
+     * adjusted cost, and matched arcs must have 0, except for arcs out of the
+     * sink or into the source (no augmenting path uses those).  The prices
+     * runResidualAlgorithm() ends with always fit its matching, so a caller
+     * can carry them over to a graph w/ a new unmatched yNode, giving it price
+     * min(edge cost + xNode price)
+     */
+    public void setStartingMatching(int[] mateOfX, double[] prices) {
+	startMateOfX = mateOfX;
+	startPrices = prices;
     }
-    
+
     /**
-     * Matches unmatched nodes along path, and unmatches matched nodes
-     * along path
+     * Run the Algorithm: iteratively add augmenting paths until no more can
+     * be added.  No Node objects are touched until the final matching is
+     * built
+     *
+     * Augmenting paths are added until the sink can't be reached any more,
+     * so xNodes and yNodes don't have to be the same size: it stops once
+     * every node on the smaller side is matched, w/o any dummy nodes
      *
-     * Matched nodes may be along path in case of a backwards edge being
-     * included on the path (again, see the textbook or another description of
-     * the algorithm for a more in-depth explanation)
+     * Prices are kept on every node index, including source and sink, so the
+     * adjusted cost of every residual arc stays non-negative and the cheapest
+     * free yNode is simply the one leading into the sink on its shortest path
+     *
+     * Returns the matching as MatchInfos, with the xNode as sNode
      */
-    private void augmentPath(PathInfo minPathToSink) {
-	for(Graph.Edge e: minPathToSink.path) {
-	    if(e.isSourceEdge() || e.isSinkEdge()) {
-		    e.invert();
-	    } else {
-		if(matching.contains(e)) {
-		    //Make the edge forward, w/ positive distance
-		    matching.remove(e);
-		    e.invert();
-		} else {
-		    //Add the "backwards edge" to the matching
-		    e.getSource().setMatched(true);
-		    e.getEnd().setMatched(true);
-		    e.invert();
-		    matching.add(e);
+    public ArrayList<MatchInfo> runResidualAlgorithm() {
+	if(startMateOfX != null) {
+	    for(int i = 0; i < rg.getNumX(); i++) {
+		if(startMateOfX[i] != -1) {
+		    matchResidualPair(rg.xIndex(i), rg.yIndex(startMateOfX[i]));
 		}
 	    }
+	    for(int v = 0; v < rg.getNumNodes(); v++) {
+		rg.setPrice(v, startPrices[v]);
+	    }
+	} else if(warmStart) {
+	    warmStart();
 	}
-    }
-
-    /**
-     * Reset any inverted edges
-     */
-    private void resetGraph() {
-	//System.out.println("\nRESET\n");
-	for(Graph.Edge e: g.edges) {
-	    if(!e.isForwardsEdge()) {
-		//System.out.println(e);
-		e.invert();
+	if(residualDijkstra == null) {
+	    residualDijkstra = new Dijkstra(rg, useHeap);
+	}
+	Dijkstra d = residualDijkstra;
+	d.setEarlyTermination(earlyTermination);
+	d.setUseRadixHeap(useRadixHeap);
+	int sink = rg.getSink();
+	while(true) {
+	    double[] dist = d.runResidual();
+	    if(dist[sink] == Double.MAX_VALUE) {
+		//No augmenting path left
+		break;
+	    }
+	    augmentResidualPath(d.getPredecessorArcs());
+	    //change prices
+	    if(earlyTermination) {
+		//Every unvisited node is at least dist[sink] from source, so
+		//distances are capped there: visited nodes get dist - dist[sink]
+		//added to their price, and unvisited nodes keep theirs
+		int[] settled = d.getSettledNodes();
+		for(int k = 0; k < d.getNumSettled(); k++) {
+		    int v = settled[k];
+		    rg.setPrice(v, rg.getPrice(v) + dist[v] - dist[sink]);
+		}
+	    } else {
+		for(int v = 0; v < rg.getNumNodes(); v++) {
+		    if(dist[v] < Double.MAX_VALUE) {
+			rg.setPrice(v, rg.getPrice(v) + dist[v]);
+		    }
+		}
+	    }
+	    if(batchAugment) {
+		augmentTightPaths();
 	    }
 	}
+	return getResidualMatching();
     }
 
     /**
-     * Add a new request node to the graph - used by Permutation Match
+     * Runs runResidualAlgorithm() again on new nodes, the same number of
+     * xNodes and yNodes as before.  rg's costs are recomputed in place (see
+     * ResidualGraph.setNodes()), and every buffer, Dijkstra's included, is
+     * reused, so only the returned matching is allocated
      *
-     * r - Request Node to add
-     * index - Index of new Request Node
+     * Any starting matching from setStartingMatching() is dropped
      */
-    public void addRequestNode(Node r, int index) {
-	//Unmatched by default
-	r.setMatched(false);
-	g.yNodes.put(index, r);
-	g.addEdgeToSink(index);
-	int sIndex = 1;
-	for(Node s: g.xNodes.values()) {
-	    if(!s.id.equals("src")) {
-		g.addEdge(sIndex, index, xyDistance(s.xPos, r.xPos, s.yPos, r.yPos));
-		sIndex++;
-	    }
-	}
+    public ArrayList<MatchInfo> resolve(ArrayList<Node> xNodes, ArrayList<Node> yNodes) {
+	rg.setNodes(xNodes, yNodes);
+	startMateOfX = null;
+	startPrices = null;
+	return runResidualAlgorithm();
     }
 
     /**
-     * Returns true if all nodes (save sink and source nodes) are matched
+     * Column reduction: each yNode gets the cost of its cheapest edge as its
+     * price, and is matched along that edge if its xNode is still free.
+     * Every adjusted cost stays non-negative and matched edges are tight, so
+     * successive shortest paths can go on from there
      *
-     * By construction, sink and source will never be matched
+     * W/ fewer xNodes than yNodes it is done the other way around (row
+     * reduction), w/ each xNode's price lowered by its cheapest edge's cost,
+     * so that the side which ends up fully matched is the one reduced
+     *
+     * The source and sink prices are set so their arcs to free nodes stay
+     * non-negative.  Arcs into the source and out of the sink may be left
+     * negative, which is fine since no augmenting path uses them
      */
-    private boolean isPerfectMatching() {
-	for(Node n: g.xNodes.values()) {
-	    if(!n.id.equals("src") && !n.isMatched()) {
-		return false;
+    private void warmStart() {
+	boolean byColumn = rg.getNumY() <= rg.getNumX();
+	int numNodes = rg.getNumNodes();
+	//Cheapest edge into each yNode (byColumn) or out of each xNode
+	if(minCost == null) {
+	    minCost = new double[numNodes];
+	    minArc = new int[numNodes];
+	    warmMatched = new boolean[numNodes];
+	}
+	boolean[] matched = warmMatched;
+	for(int v = 0; v < numNodes; v++) {
+	    matched[v] = false;
+	    minCost[v] = Double.MAX_VALUE;
+	    minArc[v] = -1;
+	}
+	for(int i = 0; i < rg.getNumX(); i++) {
+	    int x = rg.xIndex(i);
+	    for(int a = rg.firstArc(x); a < rg.endArc(x); a++) {
+		int y = rg.getHead(a);
+		if(rg.isBackwards(a) || !rg.isYNode(y)) {
+		    continue;
+		}
+		int v = byColumn ? y : x;
+		if(rg.getCost(a) < minCost[v]) {
+		    minCost[v] = rg.getCost(a);
+		    minArc[v] = a;
+		}
 	    }
 	}
-	for(Node n: g.yNodes.values()) {
-	    if(!n.id.equals("sink") && !n.isMatched()) {
-		return false;
+	for(int v = 0; v < numNodes; v++) {
+	    rg.setPrice(v, 0);
+	}
+	for(int v = 0; v < numNodes; v++) {
+	    if(minArc[v] == -1) {
+		continue;
+	    }
+	    int x = rg.getTail(minArc[v]);
+	    int y = rg.getHead(minArc[v]);
+	    rg.setPrice(v, byColumn ? minCost[v] : -minCost[v]);
+	    if(!matched[x] && !matched[y]) {
+		matchResidualPair(x, y);
+		matched[x] = true;
+		matched[y] = true;
 	    }
 	}
-	return true;
-    }
-
-    /**
-     * Only check if all request nodes are matched
-     *
-     * Used when MaxFlow is being run on an incomplete set of request nodes.
-     * See runIncompleteSet()
-     */
-    private boolean allRequestNodesMatched() {
-	for(Node n: g.yNodes.values()) {
-	    if(!n.id.equals("sink") && !n.isMatched()) {
-		return false;
+	if(byColumn) {
+	    //Sink no more expensive than any free yNode
+	    double sinkPrice = Double.MAX_VALUE;
+	    for(int j = 0; j < rg.getNumY(); j++) {
+		if(!matched[rg.yIndex(j)]) {
+		    sinkPrice = Math.min(sinkPrice, rg.getPrice(rg.yIndex(j)));
+		}
+	    }
+	    rg.setPrice(rg.getSink(), sinkPrice == Double.MAX_VALUE ? 0 : sinkPrice);
+	} else {
+	    //Source no cheaper than any xNode
+	    double sourcePrice = -Double.MAX_VALUE;
+	    for(int i = 0; i < rg.getNumX(); i++) {
+		sourcePrice = Math.max(sourcePrice, rg.getPrice(rg.xIndex(i)));
 	    }
+	    rg.setPrice(rg.getSource(), sourcePrice);
 	}
-	return true;
     }
 
     /**
-     * Unmatch all request nodes for a fresh run
+     * Pushes flow along source->x->y->sink, matching free xNode x to free
+     * yNode y
      */
-    public void unmatchRequestNodes() {
-	for(Node n: g.yNodes.values()) {
-	    n.setMatched(false);
+    private void matchResidualPair(int x, int y) {
+	int source = rg.getSource();
+	int sink = rg.getSink();
+	int sourceArc = -1;
+	for(int a = rg.firstArc(source); a < rg.endArc(source); a++) {
+	    if(rg.getHead(a) == x) {
+		sourceArc = a;
+	    }
 	}
-    }
-    
-    /**
-     * See textbook/other algorithm description to understand why prices
-     * are set as such.  I don't fully understand it myself
-     */
-    private void setInitialNodePrices() {
-	//All Nodes created w/ default price of 0, so xNodes is already set
-	for(Node n: g.yNodes.values()) {
-	    double minDistIntoN = getMinimumDistanceIntoNode(n);
-	    n.setPrice(minDistIntoN);
+	int edgeArc = -1;
+	for(int a = rg.firstArc(x); a < rg.endArc(x); a++) {
+	    if(rg.getHead(a) == y && !rg.isBackwards(a)) {
+		edgeArc = a;
+	    }
 	}
+	int sinkArc = -1;
+	for(int a = rg.firstArc(y); a < rg.endArc(y); a++) {
+	    if(rg.getHead(a) == sink && !rg.isBackwards(a)) {
+		sinkArc = a;
+	    }
+	}
+	//From the sink end back, as augmentResidualPath() does
+	rg.push(y, sinkArc);
+	rg.push(x, edgeArc);
+	rg.push(source, sourceArc);
     }
 
     /**
-     * Returns the cost of minimum-cost edge into Node n (a yNode)
+     * Pushes flow along the shortest path to the sink, walking back from the
+     * sink through the predecessor arcs found by Dijkstra
      */
-    private double getMinimumDistanceIntoNode(Node n) {
-	double minDist = Double.MAX_VALUE;
-	for(Graph.Edge e: g.edges) {
-	    if(e.getEnd().equals(n)) {
-		if(e.getDistance() < minDist) {
-		    minDist = e.getDistance();
-		}
-	    }n
+    private void augmentResidualPath(int[] predArc) {
+	int v = rg.getSink();
+	while(v != rg.getSource()) {
+	    int a = predArc[v];
+	    int tail = rg.getTail(a);
+	    rg.push(tail, a);
+	    v = tail;
 	}
-	return minDist;
     }
 
     /**
-     * Returns the distance between two points w/ (x,y) coordinates
+     * Augments along a maximal set of vertex-disjoint source-sink paths made
+     * of tight residual arcs (adjusted cost 0), as in Hopcroft-Karp: a BFS
+     * from source over tight arcs puts the nodes in levels, then a DFS only
+     * follows tight arcs from one level to the next, and never retries an arc
+     * which led to a dead end
+     *
+     * Each path is a shortest path for the current prices, so augmenting it
+     * keeps every adjusted cost non-negative, the same as augmenting along
+     * the path Dijkstra found.  On instances w/ many equal distances this
+     * matches many pairs per Dijkstra run.  Returns the number of paths
      */
-    private double xyDistance(int x1, int x2, int y1, int y2) {
-	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
-    }
-    
-    /**
-    public Graph makeTestGraph() {
-	Graph g = new Graph();
-	g.xNodes.put(1, new Node("x1", 0, 0));
-	g.xNodes.put(2, new Node("x2", 4, 7));
-	g.xNodes.put(3, new Node("x3", 9, 2));
-	for(int i: g.xNodes.keySet()) {
-	    //-1 is the id of the source node
-	    if(i == -1) {
+    private int augmentTightPaths() {
+	int numNodes = rg.getNumNodes();
+	int source = rg.getSource();
+	int sink = rg.getSink();
+	if(level == null) {
+	    level = new int[numNodes];
+	    bfsQueue = new int[numNodes];
+	    currentArc = new int[numNodes];
+	    pathArcs = new int[numNodes];
+	}
+	//BFS
+	for(int v = 0; v < numNodes; v++) {
+	    level[v] = -1;
+	    currentArc[v] = rg.firstArc(v);
+	}
+	level[source] = 0;
+	bfsQueue[0] = source;
+	int queueEnd = 1;
+	for(int k = 0; k < queueEnd; k++) {
+	    int v = bfsQueue[k];
+	    if(v == sink) {
 		continue;
 	    }
-	    g.addEdgeFromSource(i);
-	}
-	g.yNodes.put(1, new Node("y1", 9, 3));
-	g.yNodes.put(2, new Node("y2", 7, 3));
-	g.yNodes.put(3, new Node("y3", 5, 5));
-	
-	int index = 1;
-	int yIndex = 1;
-	for(index; index < g.xNodes.size(); index++) {
-	    yIndex = 1;
-	    for(yIndex; yIndex < g.yNodes.size(); yIndex++) {
-		g.addEdge(index, yIndex, x.xPos, y.xPos, x.yPos, y.yPos);
+	    for(int a = rg.firstArc(v); a < rg.endArc(v); a++) {
+		int w = rg.getHead(a);
+		if(w != -1 && level[w] == -1 && isTight(v, a)) {
+		    level[w] = level[v] + 1;
+		    bfsQueue[queueEnd] = w;
+		    queueEnd++;
+		}
 	    }
 	}
-
-	for(int i: g.yNodes.keySet()) {
-	    if(i == -1) {
+	if(level[sink] == -1) {
+	    return 0;
+	}
+	//DFS, keeping the arcs of the current path in pathArcs[0..depth-1]
+	int numPaths = 0;
+	int depth = 0;
+	int v = source;
+	while(true) {
+	    if(v == sink) {
+		//Push from the sink end back, as augmentResidualPath() does
+		for(int k = depth-1; k >= 0; k--) {
+		    rg.push(rg.getTail(pathArcs[k]), pathArcs[k]);
+		}
+		numPaths++;
+		depth = 0;
+		v = source;
 		continue;
 	    }
-	    g.addEdgeToSink(i);
+	    int a = currentArc[v];
+	    while(a < rg.endArc(v)) {
+		int w = rg.getHead(a);
+		if(w != -1 && level[w] == level[v] + 1 && isTight(v, a)) {
+		    break;
+		}
+		a++;
+	    }
+	    currentArc[v] = a;
+	    if(a < rg.endArc(v)) {
+		pathArcs[depth] = a;
+		depth++;
+		v = rg.getHead(a);
+	    } else if(v == source) {
+		break;
+	    } else {
+		//Dead end, back up and skip the arc which led here
+		depth--;
+		v = rg.getTail(pathArcs[depth]);
+		currentArc[v]++;
+	    }
 	}
+	return numPaths;
+    }
 
-	return g;
+    /**
+     * True if arc a (leaving tail) is residual and has adjusted cost 0
+     */
+    private boolean isTight(int tail, int a) {
+	return rg.hasResidual(a) && rg.getAdjustedCost(tail, a) <= TIGHT_TOLERANCE;
     }
 
-    public static void main(String[] args) {
-	MaxFlowBP mf = new MaxFlowBP();
-	mf.runAlgorithm();
+    /**
+     * Reads the matched xNode/yNode pairs out of rg
+     */
+    private ArrayList<MatchInfo> getResidualMatching() {
+	ArrayList<MatchInfo> residualMatching = new ArrayList<MatchInfo>();
+	for(int i = 0; i < rg.getNumX(); i++) {
+	    int x = rg.xIndex(i);
+	    int y = rg.getMate(x);
+	    if(y != -1) {
+		//Back to a distance, in integer-cost mode
+		residualMatching.add(new MatchInfo(rg.getNode(x), rg.getNode(y), rg.getEdgeCost(x, y)/rg.getCostScale()));
+	    }
+	}
+	return residualMatching;
     }
-    */
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 
 /**
  * The two Greedy Threshold Algorithms, which were originally just referred
@@ -32,11 +31,13 @@ public class NewAlgs {
     private ArrayList<Node> rNodes; // Cars w/ destinations
     private int threshold;
 
-    //Desirability score of each server node (parking spot)
-    private HashMap<String, Double> dScores;
-    //To use as a copy of dScores, which are updated at each match by AlgTwo
-    private HashMap<String, Double> dynamicDScores;
-    private ArrayList<Node> unmatchedSNodes;
+    //Desirability score of each server node (parking spot), indexed like sNodes
+    private double[] dScores;
+    //Copy of dScores for the kernel, which updates it for AlgTwo
+    private double[] scores;
+
+    //Shared w/ Greedy Online, see GreedyKernel
+    private GreedyKernel kernel;
     
     public NewAlgs() {
 
@@ -46,6 +47,8 @@ public class NewAlgs {
 	this.sNodes = sNodes;
 	this.rNodes = rNodes;
 	calculateDScores();
+	scores = new double[sNodes.size()];
+	kernel = new GreedyKernel(sNodes, rNodes);
     }
 
     /**--------------------------ALG ONE ---------------------*/
@@ -54,108 +57,27 @@ public class NewAlgs {
      * Run NewAlgOne, or GT1.  See comments at top of class for description
      */
     public ArrayList<MatchInfo> runAlgOne() {
-	//Create copy of sNodes (need to remove nodes when matched)
-	ArrayList<Node> sNodesCopy = new ArrayList<Node>(sNodes);
-	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(sNodesCopy.size());
-	double maxDistance = Double.MAX_VALUE;
-	for(Node r: rNodes) {
-	    //Only one node left to match
-	    if(sNodesCopy.size() == 1) {
-		Node lastSNode = sNodesCopy.get(0);
-		double lastMatchDist = xyDistance(r.xPos, lastSNode.xPos, r.yPos, lastSNode.yPos);
-		matches.add(new MatchInfo(r, lastSNode, lastMatchDist));
-		break;
-	    }
-	    double minDistanceOne = maxDistance;
-	    double minDistanceTwo = maxDistance;
-	    int selectedIndexOne = 0;
-	    int selectedIndexTwo = 0;
-	    //Find the smallest distance
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceOne) {
-		    minDistanceOne = dist;
-		    selectedIndexOne = i;
-		}
-	    }
-	    //Re-loop to find the second smallest distance.  Innefficient, maybe fix later
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceTwo && i != selectedIndexOne) {
-		    minDistanceTwo = dist;
-		    selectedIndexTwo = i;
-		}
-	    }
-	    //If D. Score of closer node is above threshold, choose that node
-	    Node s = sNodesCopy.get(selectedIndexOne);
-	    if(dScores.get(sNodesCopy.get(selectedIndexOne).id) > threshold) {
-		matches.add(new MatchInfo(r, sNodesCopy.get(selectedIndexOne), minDistanceOne));
-		sNodesCopy.remove(selectedIndexOne);
-	    } else { // else choose the farther node
-		matches.add(new MatchInfo(r, sNodesCopy.get(selectedIndexTwo), minDistanceTwo));
-		sNodesCopy.remove(selectedIndexTwo);
-	    }
-	}
-	return matches;
+	kernel.runThreshold(getScores(), threshold, false);
+	return kernel.getMatching();
     }
 
     /**------------------------ALG TWO-----------------------*/
 
     /**
-     * Run NewAlgTwo, or GT2
+     * Run NewAlgTwo, or GT2.  The kernel updates the D. Scores of the
+     * unmatched spots after each match
      */
     public ArrayList<MatchInfo> runAlgTwo() {
-	//Create copy of sNodes (need to remove nodes when matched)
-	ArrayList<Node> sNodesCopy = new ArrayList<Node>(sNodes);
-	//Unmatched S Nodes - originally full - to be updated by updateDScores()
-	unmatchedSNodes = new ArrayList<Node>(sNodes);
-	//Create copy of dScores (need to alter dScores after destinations are matched)
-	dynamicDScores = new HashMap<String, Double>(dScores);
-	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(sNodesCopy.size());
-	double maxDistance = Double.MAX_VALUE;
-	for(Node r: rNodes) {
-	    //Only one node left to match
-	    if(sNodesCopy.size() == 1) {
-		Node lastSNode = sNodesCopy.get(0);
-		double lastMatchDist = xyDistance(r.xPos, lastSNode.xPos, r.yPos, lastSNode.yPos);
-		matches.add(new MatchInfo(r, lastSNode, lastMatchDist));
-		break;
-	    }
-	    double minDistanceOne = maxDistance;
-	    double minDistanceTwo = maxDistance;
-	    int selectedIndexOne = 0;
-	    int selectedIndexTwo = 0;
-	    //Find the smallest distance
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceOne) {
-		    minDistanceOne = dist;
-		    selectedIndexOne = i;
-		}
-	    }
-	    //Re-loop to find the second smallest distance.  Far from the best way to do this!
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistanceTwo && i != selectedIndexOne) {
-		    minDistanceTwo = dist;
-		    selectedIndexTwo = i;
-		}
-	    }
-	    //If D. Score of closer node is above threshold, choose that node
-	    if(dynamicDScores.get(sNodesCopy.get(selectedIndexOne).id) > threshold) {
-		matches.add(new MatchInfo(r, sNodesCopy.get(selectedIndexOne), minDistanceOne));
-		sNodesCopy.remove(selectedIndexOne);
-		unmatchedSNodes.remove(selectedIndexOne);
-	    } else { // else choose the farther node
-		matches.add(new MatchInfo(r, sNodesCopy.get(selectedIndexTwo), minDistanceTwo));
-		sNodesCopy.remove(selectedIndexTwo);
-		unmatchedSNodes.remove(selectedIndexTwo);
-	    }
-	    //Update the D. Scores of each server node, to reflect that request
-	    //node r has been matched
-	    updateDScores(r);
-	}
-	return matches;
+	kernel.runThreshold(getScores(), threshold, true);
+	return kernel.getMatching();
+    }
+
+    /**
+     * Fresh copy of the D. Scores, indexed like sNodes
+     */
+    private double[] getScores() {
+	System.arraycopy(dScores, 0, scores, 0, dScores.length);
+	return scores;
     }
 
     public void setThreshold(int threshold) {
@@ -168,50 +90,22 @@ public class NewAlgs {
      * request node
      */
     public void calculateDScores() {
-	dScores = new HashMap<String, Double>();
-	for(Node s: sNodes) {
+	dScores = new double[sNodes.size()];
+	for(int i = 0; i < sNodes.size(); i++) {
+	    Node s = sNodes.get(i);
 	    double sumDist = 0;
 	    for(Node r: rNodes) {
-		sumDist += xyDistance(s.xPos, r.xPos, s.yPos, r.yPos);
+		sumDist += xyDistance(s.getX(), r.getX(), s.getY(), r.getY());
 	    }
-	    dScores.put(s.id, sumDist/sNodes.size());
+	    dScores[i] = sumDist/sNodes.size();
 	}
     }
     
-    /**
-     * Update the D. Scores for each unmatched spot to reflect that a
-     * destination, which has just been matched, is now unavailable
-     */
-    private void updateDScores(Node matched) {
-	for(Node s: unmatchedSNodes) {
-	    int nodesUnmatched = unmatchedSNodes.size();
-	    double sumDist = dynamicDScores.get(s.id) * (nodesUnmatched+1);
-	    double rDist = xyDistance(s.xPos, matched.xPos, s.yPos, matched.yPos);
-	    sumDist -= xyDistance(s.xPos, matched.xPos, s.yPos, matched.yPos);
-	    dynamicDScores.put(s.id, sumDist/nodesUnmatched);
-	}
-    }
-
     /**  -------------------------GREEDY ONLINE-------------------------  */
 
     public ArrayList<MatchInfo> greedyOnlineMatch() {
-	double maxDistance = Double.MAX_VALUE;
-	ArrayList<Node> sNodesCopy = new ArrayList<Node>(sNodes);
-	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(sNodesCopy.size());
-	for(Node r: rNodes) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches.add(new MatchInfo(r, sNodesCopy.get(selectedSNodeIndex), minDistance));
-	    sNodesCopy.remove(selectedSNodeIndex);
-	}
-	return matches;
+	kernel.runGreedy();
+	return kernel.getMatching();
     }
 
     /**
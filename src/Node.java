@@ -1,46 +1,64 @@
-
 /**
- * Node representation, contains the x and y position, the node's id, price
- * and whether or not it is matched
+ * Node representation: a view of one row of a NodeTable, which holds the
+ * node's x and y position, price and whether or not it is matched.  The
+ * Node itself only keeps its id (a label for printing) and its row
  */
 public class Node {
 
-    public int xPos;
-    public int yPos;
-
-    public String id;
+    public final String id;
 
-    //Price used by MaxFlowBP algorithm
-    private double price;
-    private boolean matched;
+    private final NodeTable table;
+    private final int index;
 
-    public Node(String id, int xPos, int yPos, double price) {
-	this.xPos = xPos;
-	this.yPos = yPos;
+    public Node(NodeTable table, String id, int xPos, int yPos, double price) {
+	this.table = table;
 	this.id = id;
-	this.price = price;
 	//Unmatched by default
-	matched = false;
+	index = table.add(xPos, yPos, price);
+    }
+
+    public Node(String id, int xPos, int yPos, double price) {
+	this(NodeTable.getShared(), id, xPos, yPos, price);
     }
 
     public Node(String id, int xPos, int yPos) {
 	this(id, xPos, yPos, 0);
     }
 
+    public NodeTable getTable() {
+	return table;
+    }
+
+    /**
+     * This node's row in getTable()
+     */
+    public int getIndex() {
+	return index;
+    }
+
+    public int getX() {
+	return table.getX(index);
+    }
+
+    public int getY() {
+	return table.getY(index);
+    }
+
+    //Price used by MaxFlowBP algorithm
     public double getPrice() {
-	return price;
+	return table.getPrice(index);
     }
 
     public void setPrice(double price) {
-	this.price = price;
+	table.setPrice(index, price);
     }
 
     public boolean isMatched() {
-	return matched;
+	return table.isMatched(index);
     }
 
     public void setMatched(boolean isMatched) {
-	matched = isMatched;
+	table.setMatched(index, isMatched);
     }
 
     /**
@@ -48,6 +66,6 @@ public class Node {
      */
     @Override
     public String toString() {
-	return "N id(" + id + ") at (" + xPos + "," + yPos + ")";
+	return "N id(" + id + ") at (" + getX() + "," + getY() + ")";
     }
-}
\ No newline at end of file
+}
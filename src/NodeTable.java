@@ -0,0 +1,95 @@
+import java.util.BitSet;
+
+/**
+ * Struct-of-arrays store for nodes: the coordinates, price and matched flag
+ * of node v are x[v], y[v], price[v] and matched.get(v), so the nodes made
+ * together sit next to each other in a few flat arrays, instead of each in
+ * its own object
+ *
+ * A Node is just a view of one row (its table and index).  Nodes made w/
+ * new Node(id, x, y) go in a shared table, which is swapped for a new one
+ * once it holds CAPACITY nodes, so a table is freed along w/ the last of
+ * its nodes.  Algorithms w/ their own tight loops still copy the
+ * coordinates they need into plain arrays, see getX()/getY()
+ */
+public class NodeTable {
+
+    //Rows in the shared table before it is replaced
+    private static final int CAPACITY = 1 << 16;
+
+    private static NodeTable shared = new NodeTable();
+
+    private int size;
+    private int[] x;
+    private int[] y;
+    private double[] price;
+    private BitSet matched;
+
+    public NodeTable() {
+	x = new int[16];
+	y = new int[16];
+	price = new double[16];
+	matched = new BitSet();
+    }
+
+    /**
+     * The table new Node(id, x, y) adds to
+     */
+    public static NodeTable getShared() {
+	if(shared.size >= CAPACITY) {
+	    shared = new NodeTable();
+	}
+	return shared;
+    }
+
+    /**
+     * Adds a row and returns its index
+     */
+    public int add(int xPos, int yPos, double p) {
+	if(size == x.length) {
+	    int[] newX = new int[2*size];
+	    int[] newY = new int[2*size];
+	    double[] newPrice = new double[2*size];
+	    System.arraycopy(x, 0, newX, 0, size);
+	    System.arraycopy(y, 0, newY, 0, size);
+	    System.arraycopy(price, 0, newPrice, 0, size);
+	    x = newX;
+	    y = newY;
+	    price = newPrice;
+	}
+	x[size] = xPos;
+	y[size] = yPos;
+	price[size] = p;
+	matched.clear(size);
+	size++;
+	return size - 1;
+    }
+
+    public int size() {
+	return size;
+    }
+
+    public int getX(int v) {
+	return x[v];
+    }
+
+    public int getY(int v) {
+	return y[v];
+    }
+
+    public double getPrice(int v) {
+	return price[v];
+    }
+
+    public void setPrice(int v, double p) {
+	price[v] = p;
+    }
+
+    public boolean isMatched(int v) {
+	return matched.get(v);
+    }
+
+    public void setMatched(int v, boolean isMatched) {
+	matched.set(v, isMatched);
+    }
+}
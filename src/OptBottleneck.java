@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Random;
@@ -13,6 +14,10 @@ import java.text.DecimalFormat;
  * the matrix which can reduce the maximum cost in the matching
  *
  * Look up Gross' original paper for more techincal details
+ *
+ * Gross' algorithm needs a square matrix, so when there are more server nodes
+ * than request nodes (or fewer) a threshold search is used instead, see
+ * runRectangular()
  */
 public class OptBottleneck {
 
@@ -30,8 +35,17 @@ public class OptBottleneck {
      *
      * cost[i][j] is cost from x(i+1) to y(j+1)
      * (i.e.) cost[2][0] = cost from x3 to y1 = 8
+     *
+     * x are the server nodes and y the request nodes.  The costs are kept in
+     * a CostMatrix (request nodes as rows, so it is read transposed), and
+     * cost(i, j) makes the Cost objects as they are needed, instead of
+     * keeping one for every cell
      */
-    private Cost[][] costMatrix;
+    private CostMatrix costMatrix;
+    //Cost matrix passed in by the caller, used instead of building one
+    private CostMatrix sharedCosts;
+    //Store the costs as floats?
+    private boolean useFloat;
     //Used to check if a row has a checked value
     private HashMap<Integer, Boolean> rowChecked;
     //Contains checked costs
@@ -44,6 +58,11 @@ public class OptBottleneck {
     //The current set of server-request matches
     private ArrayList<Cost> matches;
 
+    //Used by runRectangular(): request matched to each server and vice versa, or -1
+    private int[] sMate;
+    private int[] rMate;
+    private boolean[] sVisited;
+
     public OptBottleneck() {
 	sNodes = new ArrayList<Node>(nNodes);
 	rNodes = new ArrayList<Node>(nNodes);
@@ -54,6 +73,24 @@ public class OptBottleneck {
 	this.rNodes = rNodes;
     }
 
+    /**
+     * Uses an already built cost matrix (request nodes as rows) for every
+     * run, instead of building one from the nodes
+     */
+    public OptBottleneck(ArrayList<Node> sNodes, ArrayList<Node> rNodes, CostMatrix costs) {
+	this(sNodes, rNodes);
+	sharedCosts = costs;
+    }
+
+    /**
+     * Store the cost matrix as floats, in half the memory.  The matches are
+     * picked w/ the float costs, but their MatchInfo distances are still
+     * worked out in double
+     */
+    public void setUseFloat(boolean useFloat) {
+	this.useFloat = useFloat;
+    }
+
     /**
      * Initialize matrix and select cost[i][j] to be matched from i=j=0 to i=j=n
      *
@@ -62,6 +99,9 @@ public class OptBottleneck {
      * The 'Rule x' comments indicate the Rules described in Gross' paper
      */
     public ArrayList<MatchInfo> run() {
+	if(sNodes.size() != rNodes.size()) {
+	    return runRectangular();
+	}
 	costMatrix = setupCostMatrix();
 	//These structures are used by the algorithm
 	rowChecked = new HashMap<Integer, Boolean>();
@@ -162,8 +202,8 @@ public class OptBottleneck {
      */
     private Cost goToCheckedCostInRow(int curRow) {
 	Cost end = null;
-	for(int i = 0; i < costMatrix.length; i++) {
-	    Cost c = costMatrix[curRow][i];
+	for(int i = 0; i < sNodes.size(); i++) {
+	    Cost c = cost(curRow, i);
 	    if(checkedCosts.contains(c)) {
 		end = c;
 		break;
@@ -178,8 +218,8 @@ public class OptBottleneck {
      */
     private Cost goToMatchedCostInRow(int curRow) {
 	Cost end = null;
-	for(int i = 0; i < costMatrix.length; i++) {
-	    Cost c = costMatrix[curRow][i];
+	for(int i = 0; i < sNodes.size(); i++) {
+	    Cost c = cost(curRow, i);
 	    if(matches.contains(c)) {
 		end = c;
 		break;
@@ -195,9 +235,9 @@ public class OptBottleneck {
      */
     private Cost goToNextMatchedCostInCol(Cost curCost) {
 	Cost end = null;
-	for(int i = 0; i < costMatrix.length; i++) {
-	    Cost c = costMatrix[i][curCost.j];
-	    if(matches.contains(c) && c != curCost) {
+	for(int i = 0; i < sNodes.size(); i++) {
+	    Cost c = cost(i, curCost.j);
+	    if(matches.contains(c) && !c.equals(curCost)) {
 		end = c;
 		break;
 	    }
@@ -213,10 +253,9 @@ public class OptBottleneck {
      */
     private Cost goToUnmatchedCostInCol(int curCol, double bNeckVal) {
 	Cost end = null;
-	for(int i = 0; i < costMatrix.length; i++) {
-	    Cost c = costMatrix[i][curCol];
-	    if(c.val < bNeckVal && !rowChecked.get(i)) {
-		end = c;
+	for(int i = 0; i < sNodes.size(); i++) {
+	    if(costMatrix.get(curCol, i) < bNeckVal && !rowChecked.get(i)) {
+		end = cost(i, curCol);
 		break;
 	    }
 	}
@@ -225,9 +264,9 @@ public class OptBottleneck {
 
     //Set up an initial matching with costMatrix[i][i] being matched from i = 0 to size of matrix
     private ArrayList<Cost> setupInitialCosts() {
-	ArrayList<Cost> matches = new ArrayList<Cost>(costMatrix.length);
-	for(int i = 0; i < costMatrix.length; i++) {
-	    matches.add(costMatrix[i][i]);
+	ArrayList<Cost> matches = new ArrayList<Cost>(sNodes.size());
+	for(int i = 0; i < sNodes.size(); i++) {
+	    matches.add(cost(i, i));
 	    rowChecked.put(i, false);
 	}
 	return matches;
@@ -248,19 +287,153 @@ public class OptBottleneck {
 	return bNeckCost;
     }
 
+    /**  -------------------------RECTANGULAR-------------------------  */
+
     /**
-     * Set up the matrix
+     * Bottleneck matching for a non-square cost matrix, w/ every node on the
+     * smaller side matched
+     *
+     * The bottleneck is always one of the costs: the smallest one which
+     * still allows a complete matching using only costs up to it.  So keep
+     * the largest cost known to be too small and the smallest known to be
+     * enough, and try a random cost between them, like a quickselect.  That
+     * takes about O(log(n*m)) tries, each a scan of the matrix to pick the
+     * cost plus a bipartite matching (Kuhn's augmenting paths), so
+     * O(n*n*m*log(n*m)) time for n request and m server nodes, w/o padding
+     * the matrix w/ dummy nodes
+     *
+     * The costs are only read from getCostMatrix() (the shared one if there
+     * is one, in floats w/ useFloat), never copied or sorted, so the search
+     * needs no memory beyond the matrix.  W/ floats, costs which round to the
+     * same float are tied, which can only move the bottleneck by that
+     * rounding
      */
-    private Cost[][] setupCostMatrix() {
-	DecimalFormat twoD = new DecimalFormat("#.##");
-	Cost[][] costMatrix = new Cost[rNodes.size()][sNodes.size()];
-	for (int i = 0; i < sNodes.size(); i++) {
-	    Node sNode = sNodes.get(i);
-	    for(int j = 0; j < rNodes.size(); j++) {
-		Node rNode = rNodes.get(j);
-		costMatrix[i][j] = new Cost(xyDistance(sNode.xPos, rNode.xPos, sNode.yPos, rNode.yPos), i, j);
+    private ArrayList<MatchInfo> runRectangular() {
+	int numS = sNodes.size();
+	int numR = rNodes.size();
+	costMatrix = setupCostMatrix();
+	sMate = new int[numS];
+	rMate = new int[numR];
+	sVisited = new boolean[numS];
+	matches = new ArrayList<Cost>(Math.min(numS, numR));
+	if(numS == 0 || numR == 0) {
+	    return getFinalMatches(matches);
+	}
+	int target = Math.min(numS, numR);
+	//Every cost is enough, the largest included
+	double high = Double.NEGATIVE_INFINITY;
+	for(int j = 0; j < numR; j++) {
+	    for(int i = 0; i < numS; i++) {
+		high = Math.max(high, costMatrix.get(j, i));
+	    }
+	}
+	double low = Double.NEGATIVE_INFINITY;
+	Random rand = new Random();
+	while(true) {
+	    long between = countCostsBetween(low, high);
+	    if(between == 0) {
+		break;
+	    }
+	    double c = findCostBetween(low, high, (long)(rand.nextDouble()*between));
+	    if(thresholdMatching(c) == target) {
+		high = c;
+	    } else {
+		low = c;
+	    }
+	}
+	thresholdMatching(high);
+	for(int j = 0; j < numR; j++) {
+	    if(rMate[j] != -1) {
+		matches.add(cost(rMate[j], j));
 	    }
 	}
+	return getFinalMatches(matches);
+    }
+
+    /**
+     * Number of costs c w/ low < c < high
+     */
+    private long countCostsBetween(double low, double high) {
+	long count = 0;
+	for(int j = 0; j < rNodes.size(); j++) {
+	    for(int i = 0; i < sNodes.size(); i++) {
+		double c = costMatrix.get(j, i);
+		if(c > low && c < high) {
+		    count++;
+		}
+	    }
+	}
+	return count;
+    }
+
+    /**
+     * The k-th cost (from 0, in matrix order) w/ low < cost < high
+     */
+    private double findCostBetween(double low, double high, long k) {
+	for(int j = 0; j < rNodes.size(); j++) {
+	    for(int i = 0; i < sNodes.size(); i++) {
+		double c = costMatrix.get(j, i);
+		if(c > low && c < high) {
+		    if(k == 0) {
+			return c;
+		    }
+		    k--;
+		}
+	    }
+	}
+	return high;
+    }
+
+    /**
+     * Size of a maximum matching which only uses costs <= threshold
+     */
+    private int thresholdMatching(double threshold) {
+	Arrays.fill(sMate, -1);
+	Arrays.fill(rMate, -1);
+	int size = 0;
+	for(int j = 0; j < rNodes.size(); j++) {
+	    Arrays.fill(sVisited, false);
+	    if(findAugmentingPath(j, threshold)) {
+		size++;
+	    }
+	}
+	return size;
+    }
+
+    /**
+     * Tries to match request j, moving already matched requests to other
+     * servers if needed
+     */
+    private boolean findAugmentingPath(int j, double threshold) {
+	for(int i = 0; i < sNodes.size(); i++) {
+	    if(sVisited[i] || costMatrix.get(j, i) > threshold) {
+		continue;
+	    }
+	    sVisited[i] = true;
+	    if(sMate[i] == -1 || findAugmentingPath(sMate[i], threshold)) {
+		sMate[i] = j;
+		rMate[j] = i;
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Returns the cost from server i to request j
+     */
+    private Cost cost(int i, int j) {
+	return new Cost(costMatrix.get(j, i), i, j);
+    }
+
+    /**
+     * Set up the matrix
+     */
+    private CostMatrix setupCostMatrix() {
+	if(sharedCosts != null) {
+	    return sharedCosts;
+	}
+	CostMatrix costMatrix = new CostMatrix(sNodes, rNodes, useFloat);
 	/**   -----TEST CODE-----
 	Cost[][] costMatrix = new Cost[6][6];
 	double[][] vals = new double[6][6];
@@ -319,10 +492,10 @@ public class OptBottleneck {
 	    System.out.println(r);
 	}
 	System.out.println("\nCOST MATRIX\n");
-	for(int i = 0; i < costMatrix.length; i++) {
+	for(int i = 0; i < sNodes.size(); i++) {
 	    System.out.println("\n");
-	    for(Cost c: costMatrix[i]) {
-		System.out.print(c.val + "  ");
+	    for(int j = 0; j < rNodes.size(); j++) {
+		System.out.print(costMatrix.get(j, i) + "  ");
 	    }
 	}
 	System.out.println("\n");
@@ -331,11 +504,17 @@ public class OptBottleneck {
     /**
      * Essentially returns matches, but in the form of MatchInfo objects, 
      * which are used by the test code
+     *
+     * The distances are worked out again in double, as c.val is only a float
+     * w/ setUseFloat(true)
      */
     private ArrayList<MatchInfo> getFinalMatches(ArrayList<Cost> matches) {
 	ArrayList<MatchInfo> finalMatches = new ArrayList<MatchInfo>(matches.size());
 	for(Cost c: matches) {
-	    MatchInfo mi = new MatchInfo(sNodes.get(c.i), rNodes.get(c.j), c.val);
+	    Node sNode = sNodes.get(c.i);
+	    Node rNode = rNodes.get(c.j);
+	    double dist = xyDistance(sNode.getX(), rNode.getX(), sNode.getY(), rNode.getY());
+	    MatchInfo mi = new MatchInfo(sNode, rNode, dist);
 	    finalMatches.add(mi);
 	}
 	return finalMatches;
@@ -369,6 +548,24 @@ class Cost {
 	this.j = j;
     }
     
+    /**
+     * Two Costs are the same cell of the matrix if they have the same row and
+     * column, as the cost matrix makes a new Cost each time one is read
+     */
+    @Override
+    public boolean equals(Object o) {
+	if(!(o instanceof Cost)) {
+	    return false;
+	}
+	Cost c = (Cost)o;
+	return i == c.i && j == c.j;
+    }
+
+    @Override
+    public int hashCode() {
+	return 31*i + j;
+    }
+
     @Override
     public String toString() {
 	return "Cost val: " + val + " row: " + i + " column: " + j;
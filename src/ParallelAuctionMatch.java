@@ -0,0 +1,269 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A multi-threaded version of AuctionMatch, using the Jacobi (synchronous)
+ * forward auction
+ *
+ * Each round, every unassigned request node computes its bid at the same
+ * time, spread over a ForkJoinPool.  Bids only read the prices, so the only
+ * conflicts are between bids for the same server node, and those are settled
+ * w/o locks: each bid raises the server's highest bid w/ a compare-and-set
+ * loop, then the bidders who matched the highest bid race (another
+ * compare-and-set) to be the winner.  Winners then take their servers and
+ * raise their prices, and everyone who lost or was outbid bids again next
+ * round
+ *
+ * Uses the same rounded integer costs and epsilon-scaling as AuctionMatch, so
+ * it finds the same optimal cost.  Only forward bids are used: reverse bids
+ * would change the person profits that the forward bids are computed from
+ */
+public class ParallelAuctionMatch extends AuctionMatch {
+
+    //Bidders handled by one fork-join task before it stops splitting
+    private final int BIDDERS_PER_TASK = 8;
+
+    private ForkJoinPool pool;
+
+    //Unassigned request nodes bidding in this round
+    private int[] bidders;
+    private int numBidders;
+
+    //Server and price each bidder bid, and who they knocked out (or -1)
+    private int[] bidObj;
+    private long[] bidPrice;
+    private int[] evicted;
+
+    //Highest bid for each server this round, and the bidder who won it (or -1)
+    private AtomicLongArray highestBid;
+    private AtomicIntegerArray winner;
+
+    //Time taken by each round of the last run(), in nanoseconds
+    private ArrayList<Long> roundTimes;
+
+    /**
+     * Uses the common ForkJoinPool, so no threads are left behind
+     */
+    public ParallelAuctionMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
+	this(sNodes, rNodes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Uses the given pool, which is left to the caller to shut down
+     */
+    public ParallelAuctionMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes, ForkJoinPool pool) {
+	super(sNodes, rNodes);
+	this.pool = pool;
+	bidders = new int[n];
+	bidObj = new int[n];
+	bidPrice = new long[n];
+	evicted = new int[n];
+	highestBid = new AtomicLongArray(n);
+	winner = new AtomicIntegerArray(n);
+	roundTimes = new ArrayList<Long>();
+    }
+
+    /**
+     * Run the Algorithm, and return the optimal matching
+     *
+     * sNodes and rNodes must be the same size
+     */
+    @Override
+    public ArrayList<MatchInfo> run() {
+	roundTimes.clear();
+	for(int j = 0; j < n; j++) {
+	    price[j] = 0;
+	    highestBid.set(j, Long.MIN_VALUE);
+	    winner.set(j, -1);
+	}
+	if(n == 1) {
+	    personObj[0] = 0;
+	    objPerson[0] = 0;
+	    return getMatching();
+	}
+	long epsilon = initialEpsilon();
+	while(true) {
+	    runJacobiAuction(epsilon);
+	    if(epsilon == 1) {
+		break;
+	    }
+	    epsilon = Math.max(1, epsilon/EPSILON_FACTOR);
+	}
+	return getMatching();
+    }
+
+    /**
+     * Time taken by each round of bidding in the last run(), in nanoseconds
+     */
+    public ArrayList<Long> getRoundTimes() {
+	return roundTimes;
+    }
+
+    /**
+     * One full auction w/ the given epsilon, starting from the current prices
+     * and no assignments.  Every request node bids in the first round
+     */
+    private void runJacobiAuction(long epsilon) {
+	for(int k = 0; k < n; k++) {
+	    personObj[k] = -1;
+	    objPerson[k] = -1;
+	    bidders[k] = k;
+	}
+	numBidders = n;
+	while(numBidders > 0) {
+	    long start = System.nanoTime();
+	    pool.invoke(new BidTask(0, numBidders, epsilon));
+	    pool.invoke(new WinnerTask(0, numBidders));
+	    pool.invoke(new AwardTask(0, numBidders));
+	    //Next round's bidders: those who lost, and those who were outbid
+	    int next = 0;
+	    for(int k = 0; k < numBidders; k++) {
+		if(personObj[bidders[k]] == -1) {
+		    bidders[next] = bidders[k];
+		    next++;
+		}
+	    }
+	    for(int k = 0; k < numBidders; k++) {
+		if(evicted[k] != -1) {
+		    bidders[next] = evicted[k];
+		    next++;
+		}
+	    }
+	    numBidders = next;
+	    roundTimes.add(System.nanoTime() - start);
+	}
+    }
+
+    /**  -------------------------ROUND PHASES-------------------------  */
+
+    /**
+     * Computes the bids of bidders[from..to-1], and raises each server's
+     * highest bid to match
+     */
+    private class BidTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private int from;
+	private int to;
+	private long epsilon;
+
+	public BidTask(int from, int to, long epsilon) {
+	    this.from = from;
+	    this.to = to;
+	    this.epsilon = epsilon;
+	}
+
+	@Override
+	protected void compute() {
+	    if(to - from > BIDDERS_PER_TASK) {
+		int mid = (from + to)/2;
+		invokeAll(new BidTask(from, mid, epsilon), new BidTask(mid, to, epsilon));
+		return;
+	    }
+	    for(int k = from; k < to; k++) {
+		int i = bidders[k];
+		long best = Long.MIN_VALUE;
+		long second = Long.MIN_VALUE;
+		int bestJ = -1;
+		for(int j = 0; j < n; j++) {
+		    long v = benefit(i, j) - price[j];
+		    if(v > best) {
+			second = best;
+			best = v;
+			bestJ = j;
+		    } else if(v > second) {
+			second = v;
+		    }
+		}
+		long bid = price[bestJ] + best - second + epsilon;
+		bidObj[k] = bestJ;
+		bidPrice[k] = bid;
+		//Lock-free max-update
+		long current = highestBid.get(bestJ);
+		while(bid > current && !highestBid.compareAndSet(bestJ, current, bid)) {
+		    current = highestBid.get(bestJ);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Bidders w/ the highest bid for their server race to be its winner
+     */
+    private class WinnerTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private int from;
+	private int to;
+
+	public WinnerTask(int from, int to) {
+	    this.from = from;
+	    this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+	    if(to - from > BIDDERS_PER_TASK) {
+		int mid = (from + to)/2;
+		invokeAll(new WinnerTask(from, mid), new WinnerTask(mid, to));
+		return;
+	    }
+	    for(int k = from; k < to; k++) {
+		int j = bidObj[k];
+		if(bidPrice[k] == highestBid.get(j)) {
+		    winner.compareAndSet(j, -1, bidders[k]);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Each winner takes its server at its bid price, knocking out the
+     * server's old owner.  Every server has at most one winner, so no two
+     * winners touch the same entries.  Also clears the bids for next round
+     */
+    private class AwardTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private int from;
+	private int to;
+
+	public AwardTask(int from, int to) {
+	    this.from = from;
+	    this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+	    if(to - from > BIDDERS_PER_TASK) {
+		int mid = (from + to)/2;
+		invokeAll(new AwardTask(from, mid), new AwardTask(mid, to));
+		return;
+	    }
+	    for(int k = from; k < to; k++) {
+		int i = bidders[k];
+		int j = bidObj[k];
+		evicted[k] = -1;
+		if(winner.get(j) != i) {
+		    continue;
+		}
+		price[j] = bidPrice[k];
+		int oldPerson = objPerson[j];
+		if(oldPerson != -1) {
+		    personObj[oldPerson] = -1;
+		    evicted[k] = oldPerson;
+		}
+		personObj[i] = j;
+		objPerson[j] = i;
+		highestBid.set(j, Long.MIN_VALUE);
+		winner.set(j, -1);
+	    }
+	}
+    }
+}
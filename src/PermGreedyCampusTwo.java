@@ -62,23 +62,9 @@ public class PermGreedyCampusTwo {
      /**  -------------------------GREEDY ONLINE-------------------------  */
 
     public ArrayList<MatchInfo> greedyOnlineMatch() {
-	double maxDistance = Double.MAX_VALUE;
-	ArrayList<Node> spotsCopy = getSpotsCopy();
-	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(spotsCopy.size());
-	for(Node r: destinations) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < spotsCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, spotsCopy.get(i).xPos, r.yPos, spotsCopy.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches.add(new MatchInfo(r, spotsCopy.get(selectedSNodeIndex), minDistance));
-	    spotsCopy.remove(selectedSNodeIndex);
-	}
-	return matches;
+	GreedyKernel gk = new GreedyKernel(spots, destinations);
+	gk.runGreedy();
+	return gk.getMatching();
     }
 
     /**
@@ -66,23 +66,9 @@ public class PermGreedyGrid100 {
 
     public MatchInfo[] greedyOnlineMatch() {
 	MatchInfo[] matches = new MatchInfo[numberNodes];
-	double maxDistance = Double.MAX_VALUE;
-	ArrayList<Node> sNodesCopy = getSNodes();
-	int index = 0;
-	for(Node r: rNodes) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches[index] = new MatchInfo(r, sNodesCopy.get(selectedSNodeIndex), minDistance);
-	    sNodesCopy.remove(selectedSNodeIndex);
-	    index++;
-	}
+	GreedyKernel gk = new GreedyKernel(sNodes, rNodes);
+	gk.runGreedy();
+	gk.getMatching(matches);
 	return matches;
     }
 
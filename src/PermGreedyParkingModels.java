@@ -93,23 +93,9 @@ public class PermGreedyParkingModels {
      /**  -------------------------GREEDY ONLINE-------------------------  */
 
     public ArrayList<MatchInfo> greedyOnlineMatch(int modelNumber) {
-	double maxDistance = Double.MAX_VALUE;
-	ArrayList<Node> spots = getSpotsCopy(modelNumber);
-	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(spots.size());
-	for(Node r: spots) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < spots.size(); i++) {
-		double dist = xyDistance(r.xPos, spots.get(i).xPos, r.yPos, spots.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches.add(new MatchInfo(r, spots.get(selectedSNodeIndex), minDistance));
-	    spots.remove(selectedSNodeIndex);
-	}
-	return matches;
+	GreedyKernel gk = new GreedyKernel(getSpotsCopy(modelNumber), getDestinationsCopy(modelNumber));
+	gk.runGreedy();
+	return gk.getMatching();
     }
 
     /**
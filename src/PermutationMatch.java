@@ -14,7 +14,6 @@ import java.util.ArrayList;
  */
 public class PermutationMatch {
 
-    private Graph g;
     private ArrayList<Node> sNodes;
     private ArrayList<Node> rNodes;
     //Keeps track of which request node is next to be matched
@@ -25,66 +24,109 @@ public class PermutationMatch {
     //Keeps track of server nodes which have been matched already
     private ArrayList<Node> matchedSNodes;
 
+    //If > 0, run each offline match in integer-cost mode w/ this
+    //scale, and w/ a RadixHeap in Dijkstra
+    private long costScale;
+
+    //Keep one matching and its prices across arrivals, see setIncremental()
+    private boolean incremental;
+
     public PermutationMatch(ArrayList<Node> sNodes, ArrayList<Node> rNodes) {
 	this.sNodes = sNodes;
 	this.rNodes = rNodes;
 	rIndex = 0;
 	matching = new ArrayList<MatchInfo>();
 	matchedSNodes = new ArrayList<Node>();
-	g = new Graph();
+    }
+
+    /**
+     * Costs are rounded to whole numbers of 1/costScale units (see
+     * ResidualGraph.setCostScale()), so ties are broken the same way on
+     * every run.  0 turns it off
+     */
+    public void setCostScale(long costScale) {
+	this.costScale = costScale;
+    }
+
+    /**
+     * Instead of an offline match per arriving request node, keep a single
+     * GeometricMatch between arrivals: m(i-1) and its prices are optimal for
+     * the first i-1 request nodes, so m(i) is just m(i-1) plus one shortest
+     * augmenting path from r(i), and s(i) is the free server node at its end.
+     * So a run is one Dijkstra per request instead of i of them for r(i).
+     * Overrides setCostScale().  Needs no more request nodes than
+     * server nodes: runAlgorithm() throws IllegalArgumentException otherwise
+     *
+     * Not a drop-in for the default mode, which solves m(i) from scratch:
+     * when several optimal matchings tie, that one can end up w/ an m(i)
+     * which isn't m(i-1) plus one path, and so pick a different s(i), and the
+     * online cost changes w/ it.  W/o ties the choices are the same.  Ties
+     * are common on small integer grids: w/ 12 nodes in [0,5) x [0,5) most
+     * runs pick a different server somewhere, in [0,20) x [0,20) about a
+     * quarter do.  Here the matched server nodes are always exactly the
+     * servers of m(i), the nested form the analysis of the algorithm assumes
+     */
+    public void setIncremental(boolean incremental) {
+	this.incremental = incremental;
     }
 
     /**
      * Runs the matching
      */
     public ArrayList<MatchInfo> runAlgorithm() {
-	initializeGraph();
-	MaxFlowBP mf = new MaxFlowBP(g);
-	ArrayList<Graph.Edge> mfMatching;
+	if(incremental) {
+	    return runIncremental();
+	}
 	while(rIndex < rNodes.size()) {
-	    System.out.println("Perm iteration >> " + (rIndex+1));
-	    //Reset the MaxFlowBP object to allow for a fresh matching 
-	    mf.unmatchRequestNodes();
-	    //Add the new request node to be matched
-	    mf.addRequestNode(rNodes.get(rIndex), rIndex+1);
-	    mfMatching = mf.runIncompleteSet();
-	    //System.out.println("mfMatching:\n" + mfMatching);
-	    Node sNode = findNewSNode(mfMatching);
+	    //Offline match of all server nodes and the request nodes which have
+	    //arrived so far
+	    ArrayList<Node> presentRNodes = new ArrayList<Node>(rNodes.subList(0, rIndex+1));
+	    ResidualGraph rg = new ResidualGraph(sNodes, presentRNodes);
+	    MaxFlowBP mf = new MaxFlowBP(rg);
+	    if(costScale > 0) {
+		rg.setCostScale(costScale);
+		mf.setUseRadixHeap(true);
+	    }
+	    Node sNode = findNewSNode(mf.runResidualAlgorithm());
 	    matchedSNodes.add(sNode);
-	    MatchInfo match = new MatchInfo(sNode, rNodes.get(rIndex));
-	    //System.out.println("matched > " + match);
-	    matching.add(match);
+	    matching.add(new MatchInfo(sNode, rNodes.get(rIndex)));
 	    rIndex++;
 	}
-	//System.out.println(matching);
 	return matching;
     }
 
     /**
-     * Returns the server node not yet in matchedSNodes
+     * Same as runAlgorithm(), but w/ one augmenting path per request node,
+     * see setIncremental()
      */
-    private Node findNewSNode(ArrayList<Graph.Edge> mfMatching) {
-	for(Graph.Edge e: mfMatching) {
-	    if(!e.isSourceEdge() && !e.isSinkEdge()) {
-		//Edge is INVERTED - so getEnd() returns the server node
-		Node s = e.getEnd();
-		if(!matchedSNodes.contains(s)) {
-		    return s;
-		}
-	    }
+    private ArrayList<MatchInfo> runIncremental() {
+	//W/ more request nodes than server nodes, GeometricMatch's rows would
+	//be the server nodes, and addRow() would add the wrong side
+	if(rNodes.size() > sNodes.size()) {
+	    throw new IllegalArgumentException("Incremental PermutationMatch needs no more request nodes than server nodes, got "
+					       + rNodes.size() + " and " + sNodes.size());
 	}
-	return null;
+	//W/ no more request nodes than server nodes, the rows are the requests
+	GeometricMatch gm = new GeometricMatch(sNodes, rNodes);
+	gm.clearMatching();
+	while(rIndex < rNodes.size()) {
+	    Node sNode = sNodes.get(gm.addRow(rIndex));
+	    matchedSNodes.add(sNode);
+	    matching.add(new MatchInfo(sNode, rNodes.get(rIndex)));
+	    rIndex++;
+	}
+	return matching;
     }
 
     /**
-     * Sets up the initial graph w/ all server Nodes and the first request Node
+     * Returns the server node not yet in matchedSNodes
      */
-    private void initializeGraph() {
-	int index = 1;
-	for(Node s: sNodes) {
-	    g.xNodes.put(index, s);
-	    g.addEdgeFromSource(index);
-	    index++;
+    private Node findNewSNode(ArrayList<MatchInfo> mfMatching) {
+	for(MatchInfo mi: mfMatching) {
+	    if(!matchedSNodes.contains(mi.sNode)) {
+		return mi.sNode;
+	    }
 	}
+	return null;
     }
 }
@@ -0,0 +1,117 @@
+/**
+ * A radix heap: a monotone priority queue over items w/ non-negative long
+ * keys, for Dijkstra on integer costs
+ *
+ * Monotone means no key may be smaller than the last one polled, which is
+ * always true in Dijkstra w/ non-negative (adjusted) costs.  Item/key pairs
+ * sit in 65 buckets: bucket 0 holds the keys equal to the last key polled,
+ * and bucket b the keys whose highest bit differing from it is bit b-1.
+ * When bucket 0 runs out, the next non-empty bucket is emptied into the
+ * lower ones, w/ its smallest key as the new last key.  Each pair only ever
+ * moves down, so a poll is O(log C) amortized for keys up to C, w/ no
+ * comparisons between doubles at all
+ *
+ * There is no decreaseKey: the same item can just be inserted again w/ a
+ * smaller key, and the caller skips the stale copy when it comes out
+ */
+public class RadixHeap {
+
+    private final int NUM_BUCKETS = 65;
+
+    //Items and keys in each bucket, as growable arrays
+    private int[][] items;
+    private long[][] keys;
+    private int[] bucketSize;
+
+    private long last;
+    private int size;
+
+    public RadixHeap() {
+	items = new int[NUM_BUCKETS][];
+	keys = new long[NUM_BUCKETS][];
+	bucketSize = new int[NUM_BUCKETS];
+	for(int b = 0; b < NUM_BUCKETS; b++) {
+	    items[b] = new int[4];
+	    keys[b] = new long[4];
+	}
+	clear();
+    }
+
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    public int size() {
+	return size;
+    }
+
+    /**
+     * Key of the last item polled
+     */
+    public long getLastKey() {
+	return last;
+    }
+
+    /**
+     * Empties the heap, so it can be reused for another run
+     */
+    public void clear() {
+	for(int b = 0; b < NUM_BUCKETS; b++) {
+	    bucketSize[b] = 0;
+	}
+	last = 0;
+	size = 0;
+    }
+
+    /**
+     * Adds item w/ key k, which must be >= getLastKey()
+     */
+    public void insert(int item, long k) {
+	add(bucket(k), item, k);
+	size++;
+    }
+
+    /**
+     * Removes and returns an item w/ the smallest key
+     */
+    public int poll() {
+	if(bucketSize[0] == 0) {
+	    int b = 1;
+	    while(bucketSize[b] == 0) {
+		b++;
+	    }
+	    long min = Long.MAX_VALUE;
+	    for(int k = 0; k < bucketSize[b]; k++) {
+		min = Math.min(min, keys[b][k]);
+	    }
+	    last = min;
+	    //Every key in b now has a lower highest differing bit
+	    int n = bucketSize[b];
+	    bucketSize[b] = 0;
+	    for(int k = 0; k < n; k++) {
+		add(bucket(keys[b][k]), items[b][k], keys[b][k]);
+	    }
+	}
+	bucketSize[0]--;
+	size--;
+	return items[0][bucketSize[0]];
+    }
+
+    private int bucket(long k) {
+	return k == last ? 0 : 64 - Long.numberOfLeadingZeros(k ^ last);
+    }
+
+    private void add(int b, int item, long k) {
+	if(bucketSize[b] == items[b].length) {
+	    int[] newItems = new int[2*items[b].length];
+	    long[] newKeys = new long[2*keys[b].length];
+	    System.arraycopy(items[b], 0, newItems, 0, bucketSize[b]);
+	    System.arraycopy(keys[b], 0, newKeys, 0, bucketSize[b]);
+	    items[b] = newItems;
+	    keys[b] = newKeys;
+	}
+	items[b][bucketSize[b]] = item;
+	keys[b][bucketSize[b]] = k;
+	bucketSize[b]++;
+    }
+}
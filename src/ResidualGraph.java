@@ -0,0 +1,380 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * A compact residual graph for the source/xNodes/yNodes/sink network that
+ * MaxFlowBP works on, stored in compressed-sparse-row (CSR) form
+ *
+ * Nodes are plain int indices instead of Node objects:
+ *
+ *   0                      - source
+ *   1 .. numX              - xNodes (xNode i, counted from 0, is index 1+i)
+ *   numX+1 .. numX+numY    - yNodes (yNode j, counted from 0, is index 1+numX+j)
+ *   numX+numY+1            - sink
+ *
+ * The out-arcs of node v are the arc indices arcStart[v] .. arcStart[v+1]-1.
+ * Every original edge is stored as a pair of arcs: a forwards arc with the
+ * edge's cost, and a backwards arc with the negated cost, each pointing at the
+ * other through reverse[].  Since every edge has capacity 1, the flow on the
+ * graph is just a bitset over the forwards arcs
+ *
+ * This replaced the old Graph (HashMaps of Nodes and an ArrayList of Edge
+ * objects), which everything used to run on.  Results come out of here as
+ * MatchInfos (see MaxFlowBP and CostScalingFlow)
+ */
+public class ResidualGraph {
+
+    public static final int SOURCE = 0;
+
+    protected int numX;
+    protected int numY;
+    protected int numNodes;
+
+    //Original Node objects, used to report matchings (null for source/sink)
+    protected Node[] nodes;
+
+    //Price of each node, used by MaxFlowBP
+    protected double[] price;
+
+    //If > 0, costs are whole numbers of 1/costScale units, see setCostScale()
+    protected long costScale;
+
+    //CSR arrays
+    private int[] arcStart;
+    private int[] head;
+    private double[] cost;
+    private int[] reverse;
+
+    //Which arcs are backwards arcs, and which forwards arcs carry flow
+    private BitSet backwards;
+    private BitSet flow;
+
+    /**
+     * Used by subclasses which don't store their arcs in the CSR arrays
+     */
+    protected ResidualGraph(int numX, int numY) {
+	this.numX = numX;
+	this.numY = numY;
+	numNodes = numX + numY + 2;
+	nodes = new Node[numNodes];
+	price = new double[numNodes];
+    }
+
+    /**
+     * Builds the complete bipartite network between xNodes and yNodes, with
+     * the distance between each pair of nodes as the cost of its edge
+     */
+    public ResidualGraph(ArrayList<Node> xNodes, ArrayList<Node> yNodes) {
+	this(xNodes.size(), yNodes.size());
+	for(int i = 0; i < numX; i++) {
+	    nodes[xIndex(i)] = xNodes.get(i);
+	}
+	for(int j = 0; j < numY; j++) {
+	    nodes[yIndex(j)] = yNodes.get(j);
+	}
+	int numEdges = numX + numX*numY + numY;
+	int[] tails = new int[numEdges];
+	int[] ends = new int[numEdges];
+	double[] costs = new double[numEdges];
+	int e = 0;
+	for(int i = 0; i < numX; i++) {
+	    tails[e] = SOURCE;
+	    ends[e] = xIndex(i);
+	    e++;
+	}
+	for(int i = 0; i < numX; i++) {
+	    Node x = xNodes.get(i);
+	    for(int j = 0; j < numY; j++) {
+		Node y = yNodes.get(j);
+		tails[e] = xIndex(i);
+		ends[e] = yIndex(j);
+		costs[e] = xyDistance(x.getX(), y.getX(), x.getY(), y.getY());
+		e++;
+	    }
+	}
+	for(int j = 0; j < numY; j++) {
+	    tails[e] = yIndex(j);
+	    ends[e] = getSink();
+	    e++;
+	}
+	buildArcs(tails, ends, costs, numEdges);
+    }
+
+    /**
+     * Lays the edges out in CSR order: counts the out-degree of each node
+     * (each edge adds one arc to its tail and one to its end), then places
+     * every forwards/backwards arc pair
+     */
+    private void buildArcs(int[] tails, int[] ends, double[] costs, int numEdges) {
+	arcStart = new int[numNodes+1];
+	for(int e = 0; e < numEdges; e++) {
+	    arcStart[tails[e]+1]++;
+	    arcStart[ends[e]+1]++;
+	}
+	for(int v = 0; v < numNodes; v++) {
+	    arcStart[v+1] += arcStart[v];
+	}
+	int numArcs = 2*numEdges;
+	head = new int[numArcs];
+	cost = new double[numArcs];
+	reverse = new int[numArcs];
+	backwards = new BitSet(numArcs);
+	flow = new BitSet(numArcs);
+	int[] next = new int[numNodes];
+	System.arraycopy(arcStart, 0, next, 0, numNodes);
+	for(int e = 0; e < numEdges; e++) {
+	    int fwd = next[tails[e]]++;
+	    int bwd = next[ends[e]]++;
+	    head[fwd] = ends[e];
+	    cost[fwd] = costs[e];
+	    reverse[fwd] = bwd;
+	    head[bwd] = tails[e];
+	    cost[bwd] = -costs[e];
+	    reverse[bwd] = fwd;
+	    backwards.set(bwd);
+	}
+    }
+
+    /**
+     * For re-solving w/o building a new graph: swaps in new xNodes and
+     * yNodes (the same number of each as before), recomputes the cost of
+     * every xNode->yNode arc from their coordinates in place, and removes
+     * all flow and prices.  Only for graphs whose costs are distances, i.e.
+     * built by ResidualGraph(xNodes, yNodes)
+     */
+    public void setNodes(ArrayList<Node> xNodes, ArrayList<Node> yNodes) {
+	for(int i = 0; i < numX; i++) {
+	    nodes[xIndex(i)] = xNodes.get(i);
+	}
+	for(int j = 0; j < numY; j++) {
+	    nodes[yIndex(j)] = yNodes.get(j);
+	}
+	for(int i = 0; i < numX; i++) {
+	    int x = xIndex(i);
+	    Node xNode = nodes[x];
+	    for(int a = arcStart[x]; a < arcStart[x+1]; a++) {
+		if(backwards.get(a) || !isYNode(head[a])) {
+		    continue;
+		}
+		Node yNode = nodes[head[a]];
+		cost[a] = scaleCost(xyDistance(xNode.getX(), yNode.getX(), xNode.getY(), yNode.getY()));
+		cost[reverse[a]] = -cost[a];
+	    }
+	}
+	reset();
+    }
+
+    /**  -------------------------NODES-------------------------  */
+
+    public int getNumNodes() {
+	return numNodes;
+    }
+
+    public int getNumX() {
+	return numX;
+    }
+
+    public int getNumY() {
+	return numY;
+    }
+
+    public int getSource() {
+	return SOURCE;
+    }
+
+    public int getSink() {
+	return numNodes - 1;
+    }
+
+    /**
+     * Node index of the i'th xNode (counted from 0)
+     */
+    public int xIndex(int i) {
+	return 1 + i;
+    }
+
+    /**
+     * Node index of the j'th yNode (counted from 0)
+     */
+    public int yIndex(int j) {
+	return 1 + numX + j;
+    }
+
+    public boolean isXNode(int v) {
+	return v >= 1 && v <= numX;
+    }
+
+    public boolean isYNode(int v) {
+	return v > numX && v < numNodes - 1;
+    }
+
+    /**
+     * The Node object behind index v, or null for the source and sink
+     */
+    public Node getNode(int v) {
+	return nodes[v];
+    }
+
+    public double getPrice(int v) {
+	return price[v];
+    }
+
+    public void setPrice(int v, double p) {
+	price[v] = p;
+    }
+
+    /**  -------------------------INTEGER COSTS-------------------------  */
+
+    /**
+     * Integer-cost mode: rounds every cost to a whole number of 1/costScale
+     * units, and keeps it in those units from then on (so getCost(),
+     * getEdgeCost() and the prices are all scaled by costScale)
+     *
+     * The costs are still doubles, but whole numbers up to 2^53 are exact in
+     * a double, and so is any sum of them.  So distances and prices never
+     * drift, ties between paths are real ties, and runs are reproducible bit
+     * for bit.  It also lets Dijkstra use a RadixHeap
+     *
+     * Call it once, before any prices are set
+     */
+    public void setCostScale(long costScale) {
+	this.costScale = costScale;
+	if(cost == null) {
+	    return;
+	}
+	for(int a = 0; a < cost.length; a++) {
+	    if(!backwards.get(a)) {
+		cost[a] = scaleCost(cost[a]);
+		cost[reverse[a]] = -cost[a];
+	    }
+	}
+    }
+
+    public boolean hasIntegerCosts() {
+	return costScale > 0;
+    }
+
+    /**
+     * What costs are multiplied by: costScale in integer-cost mode, else 1
+     */
+    public double getCostScale() {
+	return costScale > 0 ? costScale : 1;
+    }
+
+    /**
+     * A distance in this graph's cost units
+     */
+    protected double scaleCost(double c) {
+	return costScale > 0 ? Math.round(c*costScale) : c;
+    }
+
+    /**  -------------------------ARCS-------------------------  */
+
+    /**
+     * The arcs out of v are firstArc(v) .. endArc(v)-1
+     */
+    public int firstArc(int v) {
+	return arcStart[v];
+    }
+
+    public int endArc(int v) {
+	return arcStart[v+1];
+    }
+
+    public int getHead(int a) {
+	return head[a];
+    }
+
+    public double getCost(int a) {
+	return cost[a];
+    }
+
+    public int getReverse(int a) {
+	return reverse[a];
+    }
+
+    /**
+     * The node which arc a leaves from
+     */
+    public int getTail(int a) {
+	return head[reverse[a]];
+    }
+
+    public boolean isBackwards(int a) {
+	return backwards.get(a);
+    }
+
+    /**
+     * An arc is in the residual graph if it is a forwards arc without flow,
+     * or a backwards arc whose forwards arc has flow
+     */
+    public boolean hasResidual(int a) {
+	if(backwards.get(a)) {
+	    return flow.get(reverse[a]);
+	}
+	return !flow.get(a);
+    }
+
+    /**
+     * Push one unit of flow along residual arc a, which was left from
+     * node "tail".  Pushing along a backwards arc cancels the flow on its
+     * forwards arc
+     */
+    public void push(int tail, int a) {
+	if(backwards.get(a)) {
+	    flow.clear(reverse[a]);
+	} else {
+	    flow.set(a);
+	}
+    }
+
+    /**
+     * Price-adjusted cost of arc a leaving node "tail".  Never negative for a
+     * residual arc while the prices are kept up to date by MaxFlowBP
+     */
+    public double getAdjustedCost(int tail, int a) {
+	return getCost(a) + price[tail] - price[getHead(a)];
+    }
+
+    /**
+     * Returns the index of the yNode matched to xNode index x, or -1
+     */
+    public int getMate(int x) {
+	for(int a = firstArc(x); a < endArc(x); a++) {
+	    int y = getHead(a);
+	    if(isYNode(y) && !isBackwards(a) && !hasResidual(a)) {
+		return y;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Returns the cost of the edge x->y, or -1 if there is none
+     */
+    public double getEdgeCost(int x, int y) {
+	for(int a = firstArc(x); a < endArc(x); a++) {
+	    if(getHead(a) == y && !isBackwards(a)) {
+		return getCost(a);
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Remove all flow and reset all prices to 0
+     */
+    public void reset() {
+	flow.clear();
+	for(int v = 0; v < numNodes; v++) {
+	    price[v] = 0;
+	}
+    }
+
+    /**
+     * Returns the distance between two points w/ (x,y) coordinates
+     */
+    protected double xyDistance(int x1, int x2, int y1, int y2) {
+	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
+    }
+}
@@ -67,38 +67,9 @@ public class TestCampusTwo {
 
     /**  -------------------------MAX FLOW-------------------------  */
     
-    private Graph makeGraph(ArrayList<Node> rNodes, ArrayList<Node> sNodes) {
-	Graph g = new Graph();
-	int index = 1;
-	for(Node s: sNodes) {
-	    g.xNodes.put(index, s);
-	    g.addEdgeFromSource(index);
-	    index++;
-	}
-	index = 1;
-	for(Node r: rNodes) {
-	    g.yNodes.put(index, r);
-	    g.addEdgeToSink(index);
-	    index++;
-	}
-	//Add all the edges
-	index = 1;
-	int rIndex = 1;
-	for(Node s: sNodes) {
-	    //Reset server node index
-	    rIndex = 1;
-	    for(Node r: rNodes) {
-		g.addEdge(index, rIndex, xyDistance(s.xPos, r.xPos, s.yPos, r.yPos));
-		rIndex++;
-	    }
-	    index++;
-	}
-	return g;
-    }
-
-    public ArrayList<Graph.Edge> maxFlowMatch() {
-	mf = new MaxFlowBP(makeGraph(destinations, spots));
-	ArrayList<Graph.Edge> mfMatching = mf.runAlgorithm();
+    public ArrayList<MatchInfo> maxFlowMatch() {
+	mf = new MaxFlowBP(new ResidualGraph(spots, destinations));
+	ArrayList<MatchInfo> mfMatching = mf.runResidualAlgorithm();
 	return mfMatching;
     }
 
@@ -125,33 +96,11 @@ public class TestCampusTwo {
     /**  -------------------------GREEDY ONLINE-------------------------  */
 
     public ArrayList<MatchInfo> greedyOnlineMatch() {
-	double maxDistance = Double.MAX_VALUE;
-	ArrayList<Node> spotsCopy = getSpotsCopy();
-	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(spotsCopy.size());
-	for(Node r: destinations) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < spotsCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, spotsCopy.get(i).xPos, r.yPos, spotsCopy.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches.add(new MatchInfo(r, spotsCopy.get(selectedSNodeIndex), minDistance));
-	    spotsCopy.remove(selectedSNodeIndex);
-	}
-	return matches;
+	GreedyKernel gk = new GreedyKernel(spots, destinations);
+	gk.runGreedy();
+	return gk.getMatching();
     }
 
-    /**
-     * Returns the distance between two points w/ (x,y) coordinates
-     */
-
-    private double xyDistance(int x1, int x2, int y1, int y2) {
-	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
-    }
-    
     /**---------------------------TEST---------------------------*/
 
     public void test() {
@@ -182,8 +131,8 @@ public class TestCampusTwo {
 	    double[] obMatchingCosts = getCosts(obMatching);
 	    sumAvgOBCost += obMatchingCosts[0];
 	    sumOBBneckCost += obMatchingCosts[1];
-	    ArrayList<Graph.Edge> mfMatching = maxFlowMatch();
-	    double[] mfMatchingCosts = getMFCosts(mfMatching);
+	    ArrayList<MatchInfo> mfMatching = maxFlowMatch();
+	    double[] mfMatchingCosts = getCosts(mfMatching);
 	    sumAvgMFCost += mfMatchingCosts[0];
 	    sumMFBneckCost += mfMatchingCosts[1];
 	    ArrayList<MatchInfo> pmMatching = runPermutationMatch();
@@ -270,26 +219,6 @@ sb.append("\n\n-----------------------AVERAGE BOTTLENECK COSTS:-----------------
 	return toReturn;
     }
 
-    /**
-     * Same as getCosts(ArrayList<MatchInfo>), but for Edges (in Graph.java),
-     * which are used for the Max Flow Alg
-     */
-    private double[] getMFCosts(ArrayList<Graph.Edge> edges) {
-	double sumCost = 0.0;
-	double worstCost = 0.0;
-	double bestCost = Double.MAX_VALUE;
-	for(Graph.Edge e: edges) {
-	    if(e.getDistance() > worstCost)
-		worstCost = e.getDistance();
-	    if(e.getDistance() < bestCost)
-		bestCost = e.getDistance();
-	    sumCost += e.getDistance();
-	}
-	double avgCost = sumCost/edges.size();
-	double[] toReturn = {avgCost, worstCost, bestCost};
-	return toReturn;
-    }
-
     private void determineWinners(double[] obCosts, double[] mfCosts, double[] pmCosts, double[] na1Costs, double[] na2Costs, double[] goCosts) {
 	determineWinner(obCosts[0], mfCosts[0], pmCosts[0], na1Costs[0], na2Costs[0], goCosts[0], 0);
 	determineWinner(obCosts[1], mfCosts[1], pmCosts[0], na1Costs[1], na2Costs[1], goCosts[1], 1);
@@ -75,38 +75,9 @@ public class TestGrid1060 {
 
     /**  -------------------------MAX FLOW-------------------------  */
     
-    private Graph makeGraph(ArrayList<Node> rNodes, ArrayList<Node> sNodes) {
-	Graph g = new Graph();
-	int index = 1;
-	for(Node s: sNodes) {
-	    g.xNodes.put(index, s);
-	    g.addEdgeFromSource(index);
-	    index++;
-	}
-	index = 1;
-	for(Node r: rNodes) {
-	    g.yNodes.put(index, r);
-	    g.addEdgeToSink(index);
-	    index++;
-	}
-	//Add all the edges
-	index = 1;
-	int rIndex = 1;
-	for(Node s: sNodes) {
-	    //Reset server node index
-	    rIndex = 1;
-	    for(Node r: rNodes) {
-		g.addEdge(index, rIndex, xyDistance(s.xPos, r.xPos, s.yPos, r.yPos));
-		rIndex++;
-	    }
-	    index++;
-	}
-	return g;
-    }
-
-    public ArrayList<Graph.Edge> maxFlowMatch() {
-	mf = new MaxFlowBP(makeGraph(rNodes, sNodes));
-	ArrayList<Graph.Edge> mfMatching = mf.runAlgorithm();
+    public ArrayList<MatchInfo> maxFlowMatch() {
+	mf = new MaxFlowBP(new ResidualGraph(sNodes, rNodes));
+	ArrayList<MatchInfo> mfMatching = mf.runResidualAlgorithm();
 	return mfMatching;
     }
 
@@ -121,33 +92,11 @@ public class TestGrid1060 {
     /**  -------------------------GREEDY ONLINE-------------------------  */
 
     public ArrayList<MatchInfo> greedyOnlineMatch() {
-	double maxDistance = Double.MAX_VALUE;
-	ArrayList<Node> sNodesCopy = getSNodesCopy();
-	ArrayList<MatchInfo> matches = new ArrayList<MatchInfo>(sNodesCopy.size());
-	for(Node r: rNodes) {
-	    double minDistance = maxDistance;
-	    int selectedSNodeIndex = 0;
-	    for(int i = 0; i < sNodesCopy.size(); i++) {
-		double dist = xyDistance(r.xPos, sNodesCopy.get(i).xPos, r.yPos, sNodesCopy.get(i).yPos);
-		if(dist < minDistance) {
-		    minDistance = dist;
-		    selectedSNodeIndex = i;
-		}
-	    }
-	    matches.add(new MatchInfo(r, sNodesCopy.get(selectedSNodeIndex), minDistance));
-	    sNodesCopy.remove(selectedSNodeIndex);
-	}
-	return matches;
+	GreedyKernel gk = new GreedyKernel(sNodes, rNodes);
+	gk.runGreedy();
+	return gk.getMatching();
     }
 
-    /**
-     * Returns the distance between two points w/ (x,y) coordinates
-     */
-
-    private double xyDistance(int x1, int x2, int y1, int y2) {
-	return Math.sqrt(Math.pow((x2 - x1), 2) + Math.pow((y2 - y1), 2));
-    }
-    
     /**---------------------------TEST---------------------------*/
 
     public void test() {
@@ -177,8 +126,8 @@ public class TestGrid1060 {
 		double[] obMatchingCosts = getCosts(obMatching);
 		sumAvgOBCost += obMatchingCosts[0];
 		sumOBBneckCost += obMatchingCosts[1];
-		ArrayList<Graph.Edge> mfMatching = maxFlowMatch();
-		double[] mfMatchingCosts = getMFCosts(mfMatching);
+		ArrayList<MatchInfo> mfMatching = maxFlowMatch();
+		double[] mfMatchingCosts = getCosts(mfMatching);
 		sumAvgMFCost += mfMatchingCosts[0];
 		sumMFBneckCost += mfMatchingCosts[1];
 		ArrayList<MatchInfo> goMatching = greedyOnlineMatch();
@@ -248,26 +197,6 @@ public class TestGrid1060 {
 	return toReturn;
     }
 
-    /**
-     * Same as getCosts(ArrayList<MatchInfo>), but for Edges (in Graph.java),
-     * which are used for the Max Flow Alg
-     */
-    private double[] getMFCosts(ArrayList<Graph.Edge> edges) {
-	double sumCost = 0.0;
-	double worstCost = 0.0;
-	double bestCost = Double.MAX_VALUE;
-	for(Graph.Edge e: edges) {
-	    if(e.getDistance() > worstCost)
-		worstCost = e.getDistance();
-	    if(e.getDistance() < bestCost)
-		bestCost = e.getDistance();
-	    sumCost += e.getDistance();
-	}
-	double avgCost = sumCost/edges.size();
-	double[] toReturn = {avgCost, worstCost, bestCost};
-	return toReturn;
-    }
-
     private void determineWinners(double[] obCosts, double[] mfCosts, double[] pmCosts, double[] goCosts) {
 	determineWinner(obCosts[0], mfCosts[0], pmCosts[0], goCosts[0], 0);
 	determineWinner(obCosts[1], mfCosts[1], pmCosts[0], goCosts[1], 1);
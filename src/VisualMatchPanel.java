@@ -166,32 +166,32 @@ public class VisualMatchPanel extends JPanel {
 	//NOTE - double-digit numbers will be drawn in an ugly fashion
 	for(Node servXY: sNodes) {
 	    g.setColor(Color.DARK_GRAY);
-	    g.fillRect(servXY.xPos * 20, servXY.yPos * 20, 20, 20);
+	    g.fillRect(servXY.getX() * 20, servXY.getY() * 20, 20, 20);
 	    g.setColor(Color.WHITE);
-	    g.drawString("" + (sNodes.indexOf(servXY) + 1), (servXY.xPos*20) + 3, (servXY.yPos*20) + 17);
+	    g.drawString("" + (sNodes.indexOf(servXY) + 1), (servXY.getX()*20) + 3, (servXY.getY()*20) + 17);
 	}
 	//Draw the request nodes and indices
 	for(Node reqXY: rNodes) {
 	    g.setColor(Color.RED);
-	    g.fillRect(reqXY.xPos*20, reqXY.yPos*20, 20, 20);
+	    g.fillRect(reqXY.getX()*20, reqXY.getY()*20, 20, 20);
 	    g.setColor(Color.WHITE);
-	    g.drawString("" + (rNodes.indexOf(reqXY) + 1), (reqXY.xPos*20) + 3, (reqXY.yPos*20) + 17);
+	    g.drawString("" + (rNodes.indexOf(reqXY) + 1), (reqXY.getX()*20) + 3, (reqXY.getY()*20) + 17);
 	}
 	g.setColor(Color.BLACK);
 	//Draw the lines that indicate matches
 	for(MatchInfo match: onlineMatchesToDraw) {
-	    g.drawLine(match.rNode.xPos*20, match.rNode.yPos*20, match.sNode.xPos*20, match.sNode.yPos*20);
+	    g.drawLine(match.rNode.getX()*20, match.rNode.getY()*20, match.sNode.getX()*20, match.sNode.getY()*20);
 	    //If drawDistance is enabled, draw the distance between the nodes
 	    //at the midpoint of the edge joining them
 	    if(drawDistance) {
-		g.drawString("" + match.distance, (((match.rNode.xPos*20) + (match.sNode.xPos*20)) / 2), (((match.rNode.yPos*20) + (match.sNode.yPos*20)) / 2));
+		g.drawString("" + match.distance, (((match.rNode.getX()*20) + (match.sNode.getX()*20)) / 2), (((match.rNode.getY()*20) + (match.sNode.getY()*20)) / 2));
 	    }
 	}
 	g.setColor(Color.BLUE);
 	for(MatchInfo match: offlineMatchesToDraw) {
-	    g.drawLine(match.rNode.xPos*20, match.rNode.yPos*20, match.sNode.xPos*20, match.sNode.yPos*20);
+	    g.drawLine(match.rNode.getX()*20, match.rNode.getY()*20, match.sNode.getX()*20, match.sNode.getY()*20);
 	    if(drawDistance) {
-		g.drawString("" + match.distance, (((match.rNode.xPos*20) + (match.sNode.xPos*20)) / 2), (((match.rNode.yPos*20) + (match.sNode.yPos*20)) / 2));
+		g.drawString("" + match.distance, (((match.rNode.getX()*20) + (match.sNode.getX()*20)) / 2), (((match.rNode.getY()*20) + (match.sNode.getY()*20)) / 2));
 	    }
 	}
     }